@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.benchmarks;
+
+import com.github.cpjust.server.LocalSiteServer;
+
+import java.io.IOException;
+
+/**
+ * The static product page the browser benchmarks load, so they measure the harness rather than the network.
+ */
+final class LocalSite {
+    private LocalSite() {
+    }
+
+    /**
+     * @return A new server for the stand-in site.  Must be closed.
+     * @throws IOException If the server can't be started.
+     */
+    static LocalSiteServer start() throws IOException {
+        return new LocalSiteServer(0, "site/magento.softwaretestingboard.com");
+    }
+
+    /**
+     * @param server The server.
+     * @return The URL of the product page on the server.
+     */
+    static String getProductUrl(LocalSiteServer server) {
+        return server.getBaseUrl() + "/echo-fit-compression-short.html";
+    }
+}
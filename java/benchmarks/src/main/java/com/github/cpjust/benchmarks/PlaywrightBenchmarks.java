@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.benchmarks;
+
+import com.github.cpjust.playwright.BrowserLease;
+import com.github.cpjust.playwright.BrowserPool;
+import com.github.cpjust.server.LocalSiteServer;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@code PlaywrightTestBase} pays per test: a new context from a pooled browser versus reusing a context, and a
+ * cold browser launch for comparison.  Every benchmark loads the local product page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlaywrightBenchmarks {
+    private LocalSiteServer server;
+    private String productUrl;
+    private BrowserPool pool;
+    private Playwright playwright;
+    private BrowserContext reusedContext;
+    private Page reusedPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = LocalSite.start();
+        productUrl = LocalSite.getProductUrl(server);
+        pool = new BrowserPool(1, new BrowserType.LaunchOptions());
+        pool.warmUp(1);
+
+        playwright = Playwright.create();
+        reusedContext = playwright.chromium().launch().newContext();
+        reusedPage = reusedContext.newPage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+        playwright.close();
+        server.close();
+    }
+
+    @Benchmark
+    public String pooledBrowser_newContext() {
+        try (BrowserLease lease = pool.lease(new Browser.NewContextOptions(), Duration.ofMinutes(1))) {
+            lease.getPage().navigate(productUrl);
+            return lease.getPage().title();
+        }
+    }
+
+    @Benchmark
+    public String reusedContext_clearCookies() {
+        reusedContext.clearCookies();
+        reusedPage.navigate(productUrl);
+        return reusedPage.title();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1, time = 10)
+    @Measurement(iterations = 3, time = 10)
+    public String coldLaunch() {
+        try (Playwright coldPlaywright = Playwright.create();
+             Browser browser = coldPlaywright.chromium().launch()) {
+            Page page = browser.newPage();
+            page.navigate(productUrl);
+            return page.title();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.benchmarks;
+
+import com.github.cpjust.constants.EchoFirCompressionShortKeys;
+import com.github.cpjust.locators.LocatorRegistry;
+import com.github.cpjust.network.NetworkProfiles;
+import com.github.cpjust.util.PropertyReader;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-JVM costs of the harness: reading locator files, resolving locators and building the CDP network conditions.
+ * The {@code legacy*} benchmarks repeat what the tests did per call before the locators and network profiles were
+ * cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceBenchmarks {
+    private static final String LOCATORS_FILE = "locators/magento.softwaretestingboard.com/EchoFirCompressionShort.properties";
+    private static final LocatorRegistry<EchoFirCompressionShortKeys> LOCATORS = LocatorRegistry.of(EchoFirCompressionShortKeys.class);
+    private static final Gson GSON = new Gson();
+
+    @Benchmark
+    public Properties propertyReader_getPropertiesFromResources() throws IOException {
+        return new PropertyReader().getPropertiesFromResources(LOCATORS_FILE);
+    }
+
+    @Benchmark
+    public By legacy_locatorFromProperties() throws IOException {
+        Properties properties = new PropertyReader().getPropertiesFromResources(LOCATORS_FILE);
+        return By.cssSelector(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_PRICE.getKey()));
+    }
+
+    @Benchmark
+    public By locatorRegistry_by() {
+        return LocatorRegistry.of(EchoFirCompressionShortKeys.class).by(EchoFirCompressionShortKeys.PRODUCT_PRICE);
+    }
+
+    @Benchmark
+    public String locatorRegistry_get() {
+        return LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_PRICE);
+    }
+
+    @Benchmark
+    public JsonObject legacy_networkConditionsThroughGson() {
+        LegacyNetworkConditions networkConditions = new LegacyNetworkConditions();
+        networkConditions.downloadThroughput = 10000;
+        networkConditions.uploadThroughput = -1;
+        networkConditions.latency = 5000;
+        networkConditions.offline = false;
+        return JsonParser.parseString(GSON.toJson(networkConditions))
+                .getAsJsonObject();
+    }
+
+    @Benchmark
+    public JsonObject networkProfile_toCdpParameters() {
+        return NetworkProfiles.SLOW_5S.toCdpParameters();
+    }
+
+    /**
+     * The POJO the tests used to serialize for every {@code Network.emulateNetworkConditions} call.
+     */
+    static class LegacyNetworkConditions {
+        Integer downloadThroughput;
+        Integer uploadThroughput;
+        Integer latency;
+        Boolean offline;
+    }
+}
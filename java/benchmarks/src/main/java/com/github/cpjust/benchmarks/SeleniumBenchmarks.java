@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.benchmarks;
+
+import com.github.cpjust.selenium.ChromeDriverPool;
+import com.github.cpjust.selenium.DriverLease;
+import com.github.cpjust.selenium.SharedChromeDriverService;
+import com.github.cpjust.server.LocalSiteServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@code SeleniumTestBase} pays per test: a pooled, reset session versus starting and quitting a new ChromeDriver.
+ * Every benchmark loads the local product page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeleniumBenchmarks {
+    private LocalSiteServer server;
+    private String productUrl;
+    private ChromeOptions options;
+    private ChromeDriverPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = LocalSite.start();
+        productUrl = LocalSite.getProductUrl(server);
+        options = new ChromeOptions();
+        options.addArguments("--headless=new", "--remote-allow-origins=*");
+        pool = new ChromeDriverPool(1, Integer.MAX_VALUE,
+                (SharedChromeDriverService) SharedChromeDriverService.builder().build(), options);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public String pooledDriver_reset() {
+        try (DriverLease lease = pool.lease(Duration.ofMinutes(1))) {
+            lease.getDriver().get(productUrl);
+            return lease.getDriver().getTitle();
+        }
+    }
+
+    @Benchmark
+    public String newDriver_quit() {
+        ChromeDriver driver = new ChromeDriver(options);
+
+        try {
+            driver.get(productUrl);
+            return driver.getTitle();
+        } finally {
+            driver.quit();
+        }
+    }
+}
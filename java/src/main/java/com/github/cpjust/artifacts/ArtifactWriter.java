@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.artifacts;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes test artifacts (traces, screenshots, logs) to one zip per test on a background thread, so compression and
+ * disk writes stay off the test threads.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code artifacts.mode}: {@code failures} (default) keeps the artifacts of failed tests, {@code always} keeps
+ *     every test's, and {@code off} doesn't capture anything.</li>
+ *     <li>{@code artifacts.sample.rate}: the fraction of passing tests to keep too, e.g. 0.05 (defaults to 0).</li>
+ *     <li>{@code artifacts.trace}: which Playwright tests record a trace, the most expensive artifact.  {@code off}
+ *     (default) records none, {@code retry} records the reruns of tests that already failed in this run,
+ *     {@code sampled} records a fraction of the tests and keeps their artifacts, and {@code on} records every test.
+ *     </li>
+ *     <li>{@code artifacts.trace.sample.rate}: the fraction of tests to trace in {@code sampled} mode (defaults to
+ *     0.05).</li>
+ *     <li>{@code artifacts.dir}: where the zips are written (defaults to {@code target/artifacts}).</li>
+ * </ul>
+ * If the writer falls behind, new artifacts are dropped rather than slowing the tests down.
+ */
+@Slf4j
+public class ArtifactWriter {
+    private static final int QUEUE_CAPACITY = 32;
+    private static final ArtifactWriter SHARED = new ArtifactWriter(
+            Paths.get(System.getProperty("artifacts.dir", "target/artifacts")));
+    private static final Random RANDOM = new Random();
+
+    private final Path dir;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param dir The directory to write to.
+     */
+    public ArtifactWriter(Path dir) {
+        this.dir = dir;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "artifact-writer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, (runnable, pool) -> {
+            dropped.incrementAndGet();
+            ((Bundle) runnable).deleteFiles();
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "artifact-writer-shutdown"));
+    }
+
+    /**
+     * @return The writer for the directory in the {@code artifacts.dir} system property.
+     */
+    public static ArtifactWriter getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @return True if tests should capture artifacts at all.
+     */
+    public static boolean isEnabled() {
+        return !"off".equalsIgnoreCase(getMode());
+    }
+
+    /**
+     * @param failed True if the test failed.
+     * @return True if the test's artifacts should be written.
+     */
+    public static boolean shouldKeep(boolean failed) {
+        String mode = getMode();
+
+        if ("off".equalsIgnoreCase(mode)) {
+            return false;
+        }
+
+        if (failed || "always".equalsIgnoreCase(mode)) {
+            return true;
+        }
+
+        return RANDOM.nextDouble() < Double.parseDouble(System.getProperty("artifacts.sample.rate", "0"));
+    }
+
+    /**
+     * @param retry True if the test already failed in this run.
+     * @return True if the test should record a Playwright trace.
+     */
+    public static boolean shouldTrace(boolean retry) {
+        switch (getTraceMode()) {
+            case "on":
+            case "true":
+                return true;
+            case "retry":
+                return retry;
+            case "sampled":
+                return retry || RANDOM.nextDouble() < Double.parseDouble(
+                        System.getProperty("artifacts.trace.sample.rate", "0.05"));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return True if traces are sampled, so a traced test's artifacts are kept even if it passes.
+     */
+    public static boolean isTraceSampled() {
+        return "sampled".equals(getTraceMode());
+    }
+
+    /**
+     * @param name The test name, used for the zip file name.
+     * @return A new bundle, which is queued for writing by {@link Bundle#submit()}.
+     */
+    public Bundle bundle(String name) {
+        return new Bundle(name);
+    }
+
+    /**
+     * Waits for the queued artifacts to be written.
+     */
+    public void close() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Timed out writing the test artifacts to {}", dir);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (dropped.get() > 0) {
+            log.warn("Dropped the artifacts of {} tests because the writer fell behind.", dropped.get());
+        }
+    }
+
+    private static String getMode() {
+        return System.getProperty("artifacts.mode", "failures");
+    }
+
+    private static String getTraceMode() {
+        return System.getProperty("artifacts.trace", "off").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The artifacts of one test.
+     */
+    public class Bundle implements Runnable {
+        private final String name;
+        private final Map<String, byte[]> entries = new LinkedHashMap<>();
+        private final Map<String, Path> files = new LinkedHashMap<>();
+
+        private Bundle(String name) {
+            this.name = name.replaceAll("[^\\w.-]", "_");
+        }
+
+        /**
+         * @param entryName The name in the zip.
+         * @param data      The content.
+         * @return This bundle.
+         */
+        public Bundle add(String entryName, byte[] data) {
+            entries.put(entryName, data);
+            return this;
+        }
+
+        /**
+         * Adds a file, e.g. a trace, which is deleted once it's been written to the zip.
+         *
+         * @param entryName The name in the zip.
+         * @param file      The file.
+         * @return This bundle.
+         */
+        public Bundle addFile(String entryName, Path file) {
+            files.put(entryName, file);
+            return this;
+        }
+
+        /**
+         * Queues the bundle for writing.
+         */
+        public void submit() {
+            if (executor.isShutdown()) {
+                deleteFiles();
+                return;
+            }
+
+            executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            Path zip = dir.resolve(name + ".zip");
+
+            try {
+                Files.createDirectories(dir);
+
+                try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+                    out.setLevel(Deflater.BEST_SPEED);
+
+                    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                        out.putNextEntry(new ZipEntry(entry.getKey()));
+                        out.write(entry.getValue());
+                        out.closeEntry();
+                    }
+
+                    for (Map.Entry<String, Path> file : files.entrySet()) {
+                        if (Files.exists(file.getValue())) {
+                            out.putNextEntry(new ZipEntry(file.getKey()));
+                            Files.copy(file.getValue(), (OutputStream) out);
+                            out.closeEntry();
+                        }
+                    }
+                }
+
+                log.info("Wrote the artifacts of {} to {}", name, zip);
+            } catch (IOException e) {
+                log.warn("Failed to write the artifacts of {} to {}", name, zip, e);
+            } finally {
+                deleteFiles();
+            }
+        }
+
+        private void deleteFiles() {
+            for (Path file : files.values()) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.debug("Failed to delete {}", file, e);
+                }
+            }
+        }
+    }
+}
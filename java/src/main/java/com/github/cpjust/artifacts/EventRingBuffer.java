@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.artifacts;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last N log lines of a test, e.g. console messages and network requests.  Adding a line is constant time and the
+ * buffer never grows, so it can stay on for every test and only be written out when the test fails.
+ */
+public class EventRingBuffer {
+    private final String[] events;
+    private long count;
+
+    /**
+     * @param capacity The number of lines to keep.
+     */
+    public EventRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1 but was " + capacity);
+        }
+
+        events = new String[capacity];
+    }
+
+    /**
+     * Adds a line, dropping the oldest one if the buffer is full.
+     *
+     * @param category The kind of event, e.g. "console" or "request".
+     * @param message  The event.
+     */
+    public synchronized void add(String category, String message) {
+        events[(int) (count++ % events.length)] = Instant.now() + " [" + category + "] " + message;
+    }
+
+    /**
+     * @return The lines kept, oldest first, with a note about how many were dropped.
+     */
+    public synchronized String dump() {
+        StringBuilder text = new StringBuilder();
+        long dropped = Math.max(0, count - events.length);
+
+        if (dropped > 0) {
+            text.append("... ").append(dropped).append(" earlier events dropped\n");
+        }
+
+        for (long i = dropped; i < count; i++) {
+            text.append(events[(int) (i % events.length)]).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * @return The number of lines added, including dropped ones.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+}
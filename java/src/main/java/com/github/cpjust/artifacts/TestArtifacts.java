@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.artifacts;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Tracing;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Captures one test's artifacts: its recent events in a ring buffer, its recent Playwright trace chunks, and a
+ * screenshot at the end.  Whether they're kept is decided when the test finishes (see
+ * {@link ArtifactWriter#shouldKeep(boolean)}), and the writing happens in the background.
+ * <p>
+ * {@code artifacts.events} sets how many events are kept (defaults to 500).  Traces are only recorded for the tests
+ * {@link ArtifactWriter#shouldTrace(boolean)} picks, with DOM snapshots but without a screenshot per action.  The trace
+ * is cut into one chunk per step, and only the last {@code artifacts.trace.chunks} (defaults to 5) are kept, so a long
+ * test's trace stays small and still ends with the failure.
+ */
+@Slf4j
+public class TestArtifacts {
+    @Getter
+    private final EventRingBuffer events = new EventRingBuffer(Integer.getInteger("artifacts.events", 500));
+    private final Deque<Path> traceChunks = new ArrayDeque<>();
+    private final int maxTraceChunks = Integer.getInteger("artifacts.trace.chunks", 5);
+    private BrowserContext tracedContext;
+
+    /**
+     * Starts capturing a Playwright page's console, page errors and responses, and tracing its context if
+     * {@link ArtifactWriter#shouldTrace(boolean)} says so.
+     *
+     * @param context The context.
+     * @param page    The page.
+     * @param retry   True if the test already failed in this run.
+     * @return The capture.
+     */
+    public static TestArtifacts start(BrowserContext context, Page page, boolean retry) {
+        TestArtifacts artifacts = new TestArtifacts();
+        EventRingBuffer events = artifacts.getEvents();
+        page.onConsoleMessage(message -> events.add("console", message.type() + ": " + message.text()));
+        page.onPageError(error -> events.add("page-error", error));
+        page.onResponse(response -> events.add("response", response.status() + " " + response.request().method()
+                + " " + response.url()));
+        page.onRequestFailed(request -> events.add("request-failed", request.method() + " " + request.url() + ": "
+                + request.failure()));
+
+        if (ArtifactWriter.shouldTrace(retry)) {
+            context.tracing().start(new Tracing.StartOptions()
+                    .setSnapshots(true)
+                    .setScreenshots(false));
+            artifacts.tracedContext = context;
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * Starts capturing a Selenium test.  Only the events the test adds itself are recorded.
+     *
+     * @return The capture.
+     */
+    public static TestArtifacts start() {
+        return new TestArtifacts();
+    }
+
+    /**
+     * Records the start of a step, and if the test is traced, starts a new trace chunk and drops the oldest one.
+     *
+     * @param name The step name.
+     */
+    public void startStep(String name) {
+        events.add("step", name);
+
+        if (tracedContext == null) {
+            return;
+        }
+
+        try {
+            saveTraceChunk();
+            tracedContext.tracing().startChunk(new Tracing.StartChunkOptions().setTitle(name));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to start a new trace chunk, so not tracing the rest of the test.", e);
+            stopTracing();
+        }
+    }
+
+    /**
+     * Stops capturing a Playwright test and queues its artifacts for writing if they should be kept.
+     *
+     * @param name   The test name.
+     * @param failed True if the test failed.
+     * @param page   The test's page.
+     */
+    public void finish(String name, boolean failed, Page page) {
+        boolean keep = ArtifactWriter.shouldKeep(failed) || (tracedContext != null && ArtifactWriter.isTraceSampled());
+
+        if (!keep) {
+            stopTracing();
+            deleteTraceChunks();
+            return;
+        }
+
+        ArtifactWriter.Bundle bundle = ArtifactWriter.getShared().bundle(name);
+
+        if (tracedContext != null) {
+            try {
+                saveTraceChunk();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to save the last trace chunk of {}", name, e);
+            }
+
+            stopTracing();
+        }
+
+        // Chunks are named in order, oldest first; each one opens in the trace viewer on its own.
+        int chunk = 1;
+
+        for (Path traceChunk : traceChunks) {
+            bundle.addFile(String.format("trace-%02d.zip", chunk++), traceChunk);
+        }
+
+        traceChunks.clear();
+
+        try {
+            bundle.add("screenshot.png", page.screenshot());
+        } catch (RuntimeException e) {
+            events.add("artifacts", "Failed to take a screenshot: " + e.getMessage());
+        }
+
+        bundle.add("events.log", events.dump().getBytes(StandardCharsets.UTF_8))
+                .submit();
+    }
+
+    private void saveTraceChunk() throws IOException {
+        Path chunk = Files.createTempFile("trace-", ".zip");
+        traceChunks.addLast(chunk);
+        tracedContext.tracing().stopChunk(new Tracing.StopChunkOptions().setPath(chunk));
+
+        while (traceChunks.size() > maxTraceChunks) {
+            Files.deleteIfExists(traceChunks.removeFirst());
+        }
+    }
+
+    private void stopTracing() {
+        if (tracedContext == null) {
+            return;
+        }
+
+        try {
+            tracedContext.tracing().stop();
+        } catch (RuntimeException e) {
+            log.debug("Failed to stop the trace.", e);
+        } finally {
+            tracedContext = null;
+        }
+    }
+
+    private void deleteTraceChunks() {
+        for (Path chunk : traceChunks) {
+            try {
+                Files.deleteIfExists(chunk);
+            } catch (IOException e) {
+                log.debug("Failed to delete {}", chunk, e);
+            }
+        }
+
+        traceChunks.clear();
+    }
+
+    /**
+     * Stops capturing a Selenium test and queues its artifacts (a screenshot, the page source and the events) for
+     * writing if they should be kept.
+     *
+     * @param name   The test name.
+     * @param failed True if the test failed.
+     * @param driver The test's driver.
+     */
+    public void finish(String name, boolean failed, WebDriver driver) {
+        if (!ArtifactWriter.shouldKeep(failed)) {
+            return;
+        }
+
+        ArtifactWriter.Bundle bundle = ArtifactWriter.getShared().bundle(name);
+
+        try {
+            bundle.add("screenshot.png", ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES));
+            bundle.add("page.html", driver.getPageSource().getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            events.add("artifacts", "Failed to capture the page: " + e.getMessage());
+        }
+
+        bundle.add("events.log", events.dump().getBytes(StandardCharsets.UTF_8))
+                .submit();
+    }
+}
@@ -15,18 +15,36 @@
  */
 package com.github.cpjust.constants;
 
-public class EchoFirCompressionShortKeys {
-    public static final String URL = "url";
+import com.github.cpjust.locators.LocatorKey;
+import com.github.cpjust.locators.LocatorsFile;
+import lombok.Getter;
 
-    public static final String PAGE_TITLE = "page.title";
-    public static final String PAGE_SUCCESS_MESSAGE = "page.success.message";
-    public static final String PAGE_MINI_CART_COUNTER = "page.minicart.counter";
+@Getter
+@LocatorsFile("locators/magento.softwaretestingboard.com/EchoFirCompressionShort.properties")
+public enum EchoFirCompressionShortKeys implements LocatorKey {
+    URL("url", false),
 
-    public static final String PRODUCT_AVAILABILITY = "product.availability";
-    public static final String PRODUCT_PRICE = "product.price";
-    public static final String PRODUCT_SIZES = "product.sizes";
-    public static final String PRODUCT_COLORS = "product.colors";
-    public static final String PRODUCT_SIZE_VALIDATION_ERROR = "product.size.validation.error";
-    public static final String PRODUCT_COLOR_VALIDATION_ERROR = "product.color.validation.error";
-    public static final String PRODUCT_ADD_TO_CART_BUTTON = "product.add.to.cart.button";
+    PAGE_TITLE("page.title"),
+    PAGE_SUCCESS_MESSAGE("page.success.message"),
+    PAGE_MINI_CART_COUNTER("page.minicart.counter"),
+
+    PRODUCT_AVAILABILITY("product.availability"),
+    PRODUCT_PRICE("product.price"),
+    PRODUCT_SIZES("product.sizes"),
+    PRODUCT_COLORS("product.colors"),
+    PRODUCT_SIZE_VALIDATION_ERROR("product.size.validation.error"),
+    PRODUCT_COLOR_VALIDATION_ERROR("product.color.validation.error"),
+    PRODUCT_ADD_TO_CART_BUTTON("product.add.to.cart.button");
+
+    private final String key;
+    private final boolean selector;
+
+    EchoFirCompressionShortKeys(String key) {
+        this(key, true);
+    }
+
+    EchoFirCompressionShortKeys(String key, boolean selector) {
+        this.key = key;
+        this.selector = selector;
+    }
 }
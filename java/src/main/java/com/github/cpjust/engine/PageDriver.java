@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.engine;
+
+import com.github.cpjust.locators.BatchRead;
+import com.github.cpjust.locators.LocatorKey;
+import com.github.cpjust.network.NetworkEmulator;
+import com.github.cpjust.network.NetworkSchedule;
+
+import java.util.Map;
+
+/**
+ * The browser operations the test scenarios need, so a scenario can be written once and run on either engine.
+ * <p>
+ * Selectors are CSS selectors, usually from a {@link com.github.cpjust.locators.LocatorRegistry}.  Every method that
+ * takes a selector waits for it to match and acts on the first matching element.
+ */
+public interface PageDriver {
+    /**
+     * @return The engine name, e.g. "playwright" or "selenium".  The same name is used in the page metrics.
+     */
+    String getEngine();
+
+    /**
+     * Opens a URL and waits for the page to load.
+     *
+     * @param url The URL.
+     */
+    void navigate(String url);
+
+    /**
+     * @param selector The selector.
+     */
+    void click(String selector);
+
+    /**
+     * @param selector The selector.
+     * @return The rendered text of the element.
+     */
+    String readText(String selector);
+
+    /**
+     * @param selector The selector.
+     * @return The text of all the element's child nodes, including hidden ones.
+     */
+    String readTextContent(String selector);
+
+    /**
+     * Reads several values in one browser round trip.  See {@link BatchRead}.
+     *
+     * @param batch The values to read.
+     * @param <K>   The page's locator key enum.
+     * @return The values by key.
+     */
+    <K extends Enum<K> & LocatorKey> Map<K, String> read(BatchRead<K> batch);
+
+    /**
+     * Waits until every selector matches an element in the DOM.
+     *
+     * @param selectors The selectors.
+     */
+    void waitFor(String... selectors);
+
+    /**
+     * Starts emulating network conditions on the page.
+     *
+     * @param schedule The network profile or schedule.
+     * @return The emulator, which has to be {@link NetworkEmulator#update() updated} for time-varying schedules.
+     */
+    NetworkEmulator emulateNetwork(NetworkSchedule schedule);
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.engine;
+
+import com.github.cpjust.locators.BatchRead;
+import com.github.cpjust.locators.LocatorKey;
+import com.github.cpjust.network.NetworkEmulator;
+import com.github.cpjust.network.NetworkSchedule;
+import com.microsoft.playwright.CDPSession;
+import com.microsoft.playwright.Locator;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.options.WaitForSelectorState;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A {@link PageDriver} for a Playwright page.  Waits use Playwright's auto-waiting.
+ */
+public class PlaywrightPageDriver implements PageDriver {
+    private final Page page;
+    private final Supplier<CDPSession> cdpSession;
+
+    /**
+     * @param page       The page.
+     * @param cdpSession Gets the page's CDP session, which is only needed for network emulation.
+     */
+    public PlaywrightPageDriver(Page page, Supplier<CDPSession> cdpSession) {
+        this.page = page;
+        this.cdpSession = cdpSession;
+    }
+
+    @Override
+    public String getEngine() {
+        return "playwright";
+    }
+
+    @Override
+    public void navigate(String url) {
+        page.navigate(url);
+    }
+
+    @Override
+    public void click(String selector) {
+        first(selector).click();
+    }
+
+    @Override
+    public String readText(String selector) {
+        return first(selector).innerText();
+    }
+
+    @Override
+    public String readTextContent(String selector) {
+        return first(selector).textContent();
+    }
+
+    @Override
+    public <K extends Enum<K> & LocatorKey> Map<K, String> read(BatchRead<K> batch) {
+        return batch.read(page);
+    }
+
+    @Override
+    public void waitFor(String... selectors) {
+        for (String selector : selectors) {
+            first(selector).waitFor(new Locator.WaitForOptions().setState(WaitForSelectorState.ATTACHED));
+        }
+    }
+
+    @Override
+    public NetworkEmulator emulateNetwork(NetworkSchedule schedule) {
+        return NetworkEmulator.start(schedule, cdpSession.get());
+    }
+
+    private Locator first(String selector) {
+        return page.locator(selector)
+                .first();
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.engine;
+
+import com.github.cpjust.locators.BatchRead;
+import com.github.cpjust.locators.LocatorKey;
+import com.github.cpjust.network.NetworkEmulator;
+import com.github.cpjust.network.NetworkSchedule;
+import com.github.cpjust.selenium.SmartWait;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.util.Map;
+
+/**
+ * A {@link PageDriver} for a ChromeDriver session.  Waits use {@link SmartWait}.
+ */
+public class SeleniumPageDriver implements PageDriver {
+    private final ChromeDriver driver;
+    private final SmartWait smartWait;
+
+    /**
+     * @param driver    The driver.
+     * @param smartWait The waits for the driver.
+     */
+    public SeleniumPageDriver(ChromeDriver driver, SmartWait smartWait) {
+        this.driver = driver;
+        this.smartWait = smartWait;
+    }
+
+    @Override
+    public String getEngine() {
+        return "selenium";
+    }
+
+    @Override
+    public void navigate(String url) {
+        driver.get(url);
+    }
+
+    @Override
+    public void click(String selector) {
+        first(selector).click();
+    }
+
+    @Override
+    public String readText(String selector) {
+        return first(selector).getText();
+    }
+
+    @Override
+    public String readTextContent(String selector) {
+        return first(selector).getAttribute("textContent");
+    }
+
+    @Override
+    public <K extends Enum<K> & LocatorKey> Map<K, String> read(BatchRead<K> batch) {
+        return batch.read(driver);
+    }
+
+    @Override
+    public void waitFor(String... selectors) {
+        smartWait.waitForSelectors(selectors);
+    }
+
+    @Override
+    public NetworkEmulator emulateNetwork(NetworkSchedule schedule) {
+        return NetworkEmulator.start(schedule, driver);
+    }
+
+    private WebElement first(String selector) {
+        return smartWait.waitFor(By.cssSelector(selector));
+    }
+}
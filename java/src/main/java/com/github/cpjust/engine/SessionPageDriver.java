@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.engine;
+
+import com.github.cpjust.locators.BatchRead;
+import com.github.cpjust.locators.LocatorKey;
+import com.github.cpjust.network.NetworkEmulator;
+import com.github.cpjust.network.NetworkSchedule;
+import com.github.cpjust.playwright.BrowserLease;
+import com.github.cpjust.playwright.ContextExecutor;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.options.WaitUntilState;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * A {@link PageDriver} for a {@link ContextExecutor.Session}, which shares its browser with other sessions.  Every
+ * action is a short task on the browser's thread, and waits are polled from the calling thread instead of using
+ * Playwright's auto-waiting, which would hold the browser until the page is ready.
+ */
+public class SessionPageDriver implements PageDriver {
+    private final ContextExecutor.Session session;
+    private final Duration timeout;
+
+    /**
+     * @param session The session.
+     * @param timeout How long to wait for the page to load or a selector to match.
+     */
+    public SessionPageDriver(ContextExecutor.Session session, Duration timeout) {
+        this.session = session;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String getEngine() {
+        return "playwright";
+    }
+
+    @Override
+    public void navigate(String url) {
+        session.call(lease -> lease.getPage().navigate(url,
+                new Page.NavigateOptions().setWaitUntil(WaitUntilState.COMMIT)));
+        session.waitUntil(SessionPageDriver::isLoaded, timeout);
+    }
+
+    @Override
+    public void click(String selector) {
+        waitFor(selector);
+        session.call(lease -> {
+            delegate(lease).click(selector);
+            return null;
+        });
+    }
+
+    @Override
+    public String readText(String selector) {
+        waitFor(selector);
+        return session.call(lease -> delegate(lease).readText(selector));
+    }
+
+    @Override
+    public String readTextContent(String selector) {
+        waitFor(selector);
+        return session.call(lease -> delegate(lease).readTextContent(selector));
+    }
+
+    @Override
+    public <K extends Enum<K> & LocatorKey> Map<K, String> read(BatchRead<K> batch) {
+        return session.call(lease -> delegate(lease).read(batch));
+    }
+
+    @Override
+    public void waitFor(String... selectors) {
+        session.waitUntil(lease -> {
+            for (String selector : selectors) {
+                if (lease.getPage().locator(selector).count() == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }, timeout);
+    }
+
+    /**
+     * Starts emulating network conditions on the page.  The emulator must only be {@link NetworkEmulator#update()
+     * updated} in a task on the session.
+     */
+    @Override
+    public NetworkEmulator emulateNetwork(NetworkSchedule schedule) {
+        return session.call(lease -> delegate(lease).emulateNetwork(schedule));
+    }
+
+    private static PlaywrightPageDriver delegate(BrowserLease lease) {
+        return new PlaywrightPageDriver(lease.getPage(),
+                () -> lease.getBrowserContext().newCDPSession(lease.getPage()));
+    }
+
+    private static boolean isLoaded(BrowserLease lease) {
+        try {
+            return "complete".equals(lease.getPage().evaluate("document.readyState"));
+        } catch (PlaywrightException e) {
+            // The document was replaced while navigating.
+            return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Locale;
+
+/**
+ * Decides from a test's {@link TestHistory} whether it's flaky, how many times a failure of it is retried, and whether
+ * it's flaky enough to be quarantined.
+ * <p>
+ * A test is flaky if it has both passed and failed recently, and how often its outcome flips from one run to the next
+ * measures how flaky.  A test that always fails never flips, so it's treated as broken and never retried.
+ */
+@Value
+@Builder
+public class FlakyPolicy {
+    /** The flip rate at or above which a test is retried. */
+    double retryFlipRate;
+    /** The most times one failure is retried. */
+    int maxRetries;
+    /** The most retries in the whole run, across every test. */
+    int retryBudget;
+    /** The chance of a false failure surviving the retries that the number of retries aims for. */
+    double targetFalseFailureRate;
+    /** The number of outcomes a test needs before it can be quarantined. */
+    int quarantineMinRuns;
+    /** The flip rate at or above which a test is quarantined. */
+    double quarantineFlipRate;
+    /** Which tests this run includes. */
+    Quarantine quarantine;
+
+    /**
+     * Which tests a run includes.  The quarantined tests run as a shard of their own, in parallel with the other
+     * shards, so their failures don't hold up or fail the main run.
+     */
+    public enum Quarantine {
+        /** Every test, quarantined or not. */
+        OFF,
+        /** Every test except the quarantined ones. */
+        EXCLUDE,
+        /** Only the quarantined tests. */
+        ONLY
+    }
+
+    /**
+     * Reads the policy from the {@code flaky.retry.flip.rate} (defaults to 0.1), {@code flaky.max.retries} (3),
+     * {@code flaky.retry.budget} (10), {@code flaky.target.false.failure.rate} (0.01),
+     * {@code flaky.quarantine.min.runs} (10), {@code flaky.quarantine.flip.rate} (0.3) and {@code flaky.quarantine}
+     * ({@code off}, {@code exclude} or {@code only}; defaults to {@code off}) system properties.
+     *
+     * @return The policy.
+     */
+    public static FlakyPolicy fromSystemProperties() {
+        return FlakyPolicy.builder()
+                .retryFlipRate(Double.parseDouble(System.getProperty("flaky.retry.flip.rate", "0.1")))
+                .maxRetries(Integer.getInteger("flaky.max.retries", 3))
+                .retryBudget(Integer.getInteger("flaky.retry.budget", 10))
+                .targetFalseFailureRate(Double.parseDouble(System.getProperty("flaky.target.false.failure.rate", "0.01")))
+                .quarantineMinRuns(Integer.getInteger("flaky.quarantine.min.runs", 10))
+                .quarantineFlipRate(Double.parseDouble(System.getProperty("flaky.quarantine.flip.rate", "0.3")))
+                .quarantine(Quarantine.valueOf(System.getProperty("flaky.quarantine", "off").toUpperCase(Locale.ROOT)))
+                .build();
+    }
+
+    /**
+     * The retries adapt to how often the test fails: enough that, if its failures are independent, the chance of every
+     * retry failing too is below {@link #getTargetFalseFailureRate()}, up to {@link #getMaxRetries()}.
+     *
+     * @param outcomes The test's outcomes, oldest first.
+     * @return How many times a failure of the test should be retried.
+     */
+    public int getRetries(String outcomes) {
+        if (getFlipRate(outcomes) < retryFlipRate) {
+            return 0;
+        }
+
+        double failureRate = getFailureRate(outcomes);
+        int retries = (int) Math.ceil(Math.log(targetFalseFailureRate) / Math.log(failureRate));
+        return Math.max(1, Math.min(maxRetries, retries));
+    }
+
+    /**
+     * @param outcomes The test's outcomes, oldest first.
+     * @return True if the test flips between passing and failing so often that it should be quarantined.
+     */
+    public boolean isQuarantined(String outcomes) {
+        return outcomes.length() >= quarantineMinRuns && getFlipRate(outcomes) >= quarantineFlipRate;
+    }
+
+    /**
+     * @param outcomes The test's outcomes, oldest first.
+     * @return The fraction of consecutive outcomes that differ, from 0 (stable) to 1 (alternating).
+     */
+    public static double getFlipRate(String outcomes) {
+        if (outcomes.length() < 2) {
+            return 0;
+        }
+
+        int flips = 0;
+
+        for (int i = 1; i < outcomes.length(); i++) {
+            if (outcomes.charAt(i) != outcomes.charAt(i - 1)) {
+                flips++;
+            }
+        }
+
+        return (double) flips / (outcomes.length() - 1);
+    }
+
+    /**
+     * @param outcomes The test's outcomes, oldest first.
+     * @return The fraction of the outcomes that failed.
+     */
+    public static double getFailureRate(String outcomes) {
+        if (outcomes.isEmpty()) {
+            return 0;
+        }
+
+        long failures = outcomes.chars().filter(outcome -> outcome == TestHistory.FAILED).count();
+        return (double) failures / outcomes.length();
+    }
+}
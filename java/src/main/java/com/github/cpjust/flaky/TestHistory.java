@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The recent pass/fail record of each test, kept in a properties file of {@code <class>.<method> = PPFPP...} (oldest
+ * first) so every shard of a run can share it.  A test has one outcome per run, and only the last
+ * {@value #MAX_OUTCOMES} are kept, so a test that has been fixed stops looking flaky.
+ */
+@Slf4j
+public class TestHistory {
+    public static final char PASSED = 'P';
+    public static final char FAILED = 'F';
+    static final int MAX_OUTCOMES = 30;
+
+    private final Path file;
+    private final Map<String, String> outcomes = new ConcurrentHashMap<>();
+    /** Test name -> its outcome in this run. */
+    private final Map<String, Character> recorded = new ConcurrentHashMap<>();
+
+    private TestHistory(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param file The history file.  A missing file is treated as empty.
+     * @return The history.
+     * @throws IOException If the file can't be read.
+     */
+    public static TestHistory load(Path file) throws IOException {
+        TestHistory history = new TestHistory(file);
+
+        if (Files.exists(file)) {
+            history.outcomes.putAll(parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+        }
+
+        return history;
+    }
+
+    /**
+     * @param test The test name.
+     * @return The test's outcomes before this run, oldest first, or an empty string if it has never run.
+     */
+    public String getOutcomes(String test) {
+        return outcomes.getOrDefault(test, "");
+    }
+
+    /**
+     * Records the outcome of a test in this run.  Only the first outcome of each test is kept, so retries don't count.
+     * Saved by {@link #save()}.
+     *
+     * @param test   The test name, including its variant if it has one.
+     * @param passed True if the test passed.
+     */
+    public void record(String test, boolean passed) {
+        recorded.putIfAbsent(test, passed ? PASSED : FAILED);
+    }
+
+    /**
+     * Appends the outcomes recorded in this run to the file.  The file is locked while it's updated, so shards sharing
+     * it don't lose each other's updates.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public void save() throws IOException {
+        if (recorded.isEmpty()) {
+            return;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+
+            try {
+                ByteBuffer existing = ByteBuffer.allocate((int) channel.size());
+
+                while (existing.hasRemaining() && channel.read(existing) >= 0) {
+                    // Keep reading until the whole file is in the buffer.
+                }
+
+                Map<String, String> saved = parse(new String(existing.array(), StandardCharsets.UTF_8));
+
+                for (Map.Entry<String, Character> test : recorded.entrySet()) {
+                    String merged = saved.getOrDefault(test.getKey(), "") + test.getValue();
+                    saved.put(test.getKey(), merged.substring(Math.max(0, merged.length() - MAX_OUTCOMES)));
+                }
+
+                Properties properties = new Properties();
+                properties.putAll(saved);
+                StringWriter writer = new StringWriter();
+                properties.store(writer, "Recent test outcomes (P = passed, F = failed), oldest first");
+
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(writer.toString().getBytes(StandardCharsets.UTF_8)), 0);
+            } finally {
+                lock.release();
+            }
+        }
+
+        log.info("Saved the outcomes of {} tests to {}", recorded.size(), file);
+    }
+
+    private static Map<String, String> parse(String text) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(text));
+        Map<String, String> history = new TreeMap<>();
+
+        for (String test : properties.stringPropertyNames()) {
+            history.put(test, properties.getProperty(test).replaceAll("[^" + PASSED + FAILED + "]", ""));
+        }
+
+        return history;
+    }
+}
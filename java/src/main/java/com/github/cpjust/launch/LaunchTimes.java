@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.launch;
+
+import com.github.cpjust.results.ResultStream;
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records how long the browsers take to launch, split into the first (cold) launch of each engine in the JVM and the
+ * later (warm) ones, which find Chrome's files in the OS cache.
+ * <p>
+ * Every launch is appended to the newline delimited JSON file in {@code launch.times.file} (defaults to
+ * {@code target/metrics/launch-times.ndjson}) with the {@link LaunchProfile} it used, and streamed to the run report as
+ * a {@code launch} record of the {@link ResultStream}.  The averages are logged when the JVM exits.
+ */
+@Slf4j
+public class LaunchTimes {
+    private static final Gson GSON = new Gson();
+    private static final LaunchTimes SHARED = new LaunchTimes(
+            Paths.get(System.getProperty("launch.times.file", "target/metrics/launch-times.ndjson")));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SHARED::log, "launch-times"));
+    }
+
+    private final Path file;
+    /** "engine cold/warm" -> {count, total ms, max ms}. */
+    private final Map<String, double[]> launches = new TreeMap<>();
+
+    /**
+     * @param file The file to append to.
+     */
+    public LaunchTimes(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return The launch times for the file in the {@code launch.times.file} system property.
+     */
+    public static LaunchTimes getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Records a launch.  Failures to write it are logged rather than thrown so they don't fail the test.
+     *
+     * @param engine     The engine, e.g. "playwright" or "selenium".
+     * @param durationMs How long the launch took.
+     */
+    public synchronized void record(String engine, double durationMs) {
+        boolean cold = !launches.containsKey(engine + " cold");
+        double[] stats = launches.computeIfAbsent(engine + (cold ? " cold" : " warm"), key -> new double[3]);
+        stats[0]++;
+        stats[1] += durationMs;
+        stats[2] = Math.max(stats[2], durationMs);
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("engine", engine);
+        record.put("profile", getProfileName());
+        record.put("cold", cold);
+        record.put("launchMs", Math.round(durationMs));
+        ResultStream.getShared().recordLaunch(engine, getProfileName(), cold, durationMs);
+
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                writer.write(GSON.toJson(record));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write the launch time to {}", file, e);
+        }
+    }
+
+    /**
+     * Logs the average and maximum launch times.
+     */
+    public synchronized void log() {
+        for (Map.Entry<String, double[]> entry : launches.entrySet()) {
+            double[] stats = entry.getValue();
+            log.info("Browser launch ({}, {}): {} launches, avg {} ms, max {} ms", entry.getKey(), getProfileName(),
+                    (long) stats[0], String.format("%.0f", stats[1] / stats[0]), String.format("%.0f", stats[2]));
+        }
+    }
+
+    private static String getProfileName() {
+        return System.getProperty("launch.profile", LaunchProfile.HEADED.getName());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.launch;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hands out Chrome user data directories under one root that can be kept between runs (e.g. as a CI cache), so a new
+ * browser finds its profile, compiled shaders and HTTP cache already in place.
+ * <p>
+ * Chrome locks its user data directory, so each browser gets a slot of its own ({@code slot-0}, {@code slot-1}, ...)
+ * and the lowest free slot is reused when a browser is replaced.  A slot is held with a lock on its
+ * {@code slot-N.lock} file, so parallel JVMs sharing the root, e.g. test shards, never pick the same slot.  Enabled
+ * with the {@code launch.user.data.dir} system property.
+ */
+@Slf4j
+public class UserDataDirs {
+    private final Path root;
+    /** Slot -> the lock this JVM holds on it. */
+    private final Map<Integer, FileLock> heldSlots = new TreeMap<>();
+
+    /**
+     * @param root The directory the slots are created in.
+     */
+    public UserDataDirs(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @return The directories under the {@code launch.user.data.dir} system property, or null if it isn't set.
+     */
+    public static UserDataDirs fromSystemProperties() {
+        String root = System.getProperty("launch.user.data.dir");
+        return root == null || root.trim().isEmpty() ? null : new UserDataDirs(Paths.get(root.trim()));
+    }
+
+    /**
+     * Takes the lowest slot that no browser in this or another JVM is using, creating its directory if it doesn't exist
+     * yet.
+     *
+     * @return The slot's directory, which must be returned with {@link #release(Path)} when its browser is closed.
+     */
+    public synchronized Path acquire() {
+        try {
+            Files.createDirectories(root);
+
+            for (int slot = 0; ; slot++) {
+                if (heldSlots.containsKey(slot)) {
+                    continue;
+                }
+
+                FileLock lock = tryLock(slot);
+
+                if (lock != null) {
+                    Path dir = root.resolve("slot-" + slot).toAbsolutePath();
+                    Files.createDirectories(dir);
+                    heldSlots.put(slot, lock);
+                    log.debug("Using user data directory {}", dir);
+                    return dir;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to take a user data directory under " + root, e);
+        }
+    }
+
+    /**
+     * Frees a slot taken with {@link #acquire()}.
+     *
+     * @param dir The slot's directory.
+     */
+    public synchronized void release(Path dir) {
+        String name = dir.getFileName().toString();
+        FileLock lock = heldSlots.remove(Integer.parseInt(name.substring("slot-".length())));
+
+        if (lock != null) {
+            try {
+                lock.channel().close();
+            } catch (IOException e) {
+                log.warn("Failed to unlock the user data directory {}", dir, e);
+            }
+        }
+    }
+
+    /**
+     * @return The lock on the slot, or null if another JVM, or another instance in this one, holds it.
+     */
+    private FileLock tryLock(int slot) throws IOException {
+        FileChannel channel = FileChannel.open(root.resolve("slot-" + slot + ".lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+
+        try {
+            FileLock lock = channel.tryLock();
+
+            if (lock != null) {
+                return lock;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Held by another instance with the same root in this JVM.
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        channel.close();
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import java.io.PrintStream;
+
+/**
+ * A fixed-size, log-linear histogram of latencies in microseconds, in the style of HdrHistogram: values are kept to
+ * within 1.6% no matter how large, and recording is constant time and memory.
+ * <p>
+ * Values below 128 are counted exactly.  Larger values are counted in 64 linear sub-buckets per power of two.
+ */
+public class LatencyHistogram {
+    private static final int EXACT_VALUES = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final double[] REPORTED_PERCENTILES = {0, 50, 75, 90, 95, 99, 99.9, 100};
+
+    private final long[] counts = new long[EXACT_VALUES + (Long.SIZE - SUB_BUCKET_BITS - 1) * SUB_BUCKETS];
+    private long totalCount;
+    private long max;
+    private double sum;
+
+    /**
+     * @param micros The latency in microseconds.  Negative values are counted as 0.
+     */
+    public synchronized void record(long micros) {
+        long value = Math.max(0, micros);
+        counts[indexOf(value)]++;
+        totalCount++;
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    /**
+     * @return The number of values recorded.
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return The largest value recorded, in microseconds.
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @return The mean of the values recorded, in microseconds.
+     */
+    public synchronized double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value at the percentile, in microseconds.  Values are rounded up to the top of their sub-bucket.
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long cumulative = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+
+            if (cumulative >= target) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Prints the percentile distribution in the layout of HdrHistogram's {@code .hgrm} files.
+     *
+     * @param out   The stream to print to.
+     * @param scale The value to divide by, e.g. 1000 to print milliseconds.
+     */
+    public synchronized void outputPercentileDistribution(PrintStream out, double scale) {
+        out.format("%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+
+        for (double percentile : REPORTED_PERCENTILES) {
+            long value = getValueAtPercentile(percentile);
+            long count = (long) Math.ceil(percentile / 100 * totalCount);
+            String inverse = percentile < 100 ? String.format("%14.2f", 1 / (1 - percentile / 100)) : "";
+            out.format("%12.3f %2.12f %10d %s%n", value / scale, percentile / 100, count, inverse);
+        }
+
+        out.format("#[Mean    = %12.3f, Max            = %12.3f]%n", getMean() / scale, max / scale);
+        out.format("#[Total count = %d]%n", totalCount);
+    }
+
+    private static int indexOf(long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BUCKET_BITS;
+        return EXACT_VALUES + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < EXACT_VALUES) {
+            return index;
+        }
+
+        int shift = (index - EXACT_VALUES) / SUB_BUCKETS + 1;
+        long top = SUB_BUCKETS + (index - EXACT_VALUES) % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import com.github.cpjust.metrics.StepRunner;
+import com.github.cpjust.metrics.StepTimer;
+import com.github.cpjust.playwright.ContextExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a browser flow as a load test: virtual users are started over the ramp-up time and each one repeats the flow
+ * until the duration or its iteration limit is reached.
+ * <p>
+ * Every user runs on its own orchestration thread of the {@link ContextExecutor} (a virtual thread on Java 21 and
+ * later) and holds a {@link ContextExecutor.Session} on one of the executor's shared browsers.  Every iteration runs in
+ * a fresh context of that session, like a new visitor.  The flow should drive the page through the session in short
+ * tasks, e.g. with a {@link com.github.cpjust.engine.SessionPageDriver}, so the users on a browser really run at the
+ * same time rather than one after another.
+ * <p>
+ * Iterations are timed from when they were due to start, i.e. after the user's ramp-up delay or think time, not from
+ * when they got to run.  So time spent waiting for a free context or a busy browser counts as latency, rather than
+ * being left out of the results (coordinated omission).  The steps are recorded in the {@link LoadResult}.
+ */
+@Slf4j
+public class LoadGenerator {
+    private final ContextExecutor executor;
+    private final LoadProfile profile;
+
+    /**
+     * @param executor Runs the users.  Its context limit should be at least the number of users.
+     * @param profile  The users, ramp-up and duration.
+     */
+    public LoadGenerator(ContextExecutor executor, LoadProfile profile) {
+        this.executor = executor;
+        this.profile = profile;
+    }
+
+    /**
+     * One iteration of the flow.
+     */
+    @FunctionalInterface
+    public interface Iteration {
+        /**
+         * @param session The user's session, whose context is fresh for every iteration.
+         * @param steps   Times the iteration's steps.
+         */
+        void run(ContextExecutor.Session session, StepRunner steps);
+    }
+
+    /**
+     * Runs the load test and waits for every user to finish.
+     *
+     * @param iteration The flow.
+     * @return The latencies and errors.
+     */
+    public LoadResult run(Iteration iteration) {
+        LoadResult result = new LoadResult();
+        List<CompletableFuture<Void>> users = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + profile.getDuration().toNanos();
+
+        try {
+            for (int user = 0; user < profile.getUsers(); user++) {
+                long startNanos = start + profile.getRampUp().toNanos() * user / profile.getUsers();
+                VirtualUser virtualUser = new VirtualUser(user + 1, iteration, result, startNanos, end);
+                users.add(executor.orchestrate(virtualUser::run));
+            }
+
+            CompletableFuture.allOf(users.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            result.setElapsed(Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        return result;
+    }
+
+    /**
+     * A user that runs its iterations one after another, with the think time in between.
+     */
+    private class VirtualUser {
+        private final int id;
+        private final Iteration iteration;
+        private final LoadResult result;
+        private final long startNanos;
+        private final long endNanos;
+        private int iterations;
+
+        VirtualUser(int id, Iteration iteration, LoadResult result, long startNanos, long endNanos) {
+            this.id = id;
+            this.iteration = iteration;
+            this.result = result;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        void run() {
+            ContextExecutor.Session session = null;
+            long dueNanos = startNanos;
+
+            try {
+                sleepUntil(dueNanos);
+                session = executor.openSession().join();
+
+                while ((profile.getIterationsPerUser() <= 0 || iterations < profile.getIterationsPerUser())
+                        && dueNanos - endNanos < 0) {
+                    runIteration(session, dueNanos);
+                    dueNanos = System.nanoTime() + profile.getThinkTime().toNanos();
+                    sleepUntil(dueNanos);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Virtual user #{} stopped after {} iterations.", id, iterations, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Virtual user #{} was interrupted after {} iterations.", id, iterations);
+            } finally {
+                log.debug("Virtual user #{} finished after {} iterations.", id, iterations);
+
+                if (session != null) {
+                    session.close();
+                }
+            }
+        }
+
+        private void runIteration(ContextExecutor.Session session, long dueNanos) {
+            iterations++;
+            StepTimer stepTimer = new StepTimer();
+            StepRunner steps = new StepRunner() {
+                @Override
+                public <T> T step(String name, Supplier<T> step) {
+                    return stepTimer.time(name, step);
+                }
+            };
+            boolean failed = false;
+
+            try {
+                session.renew();
+                iteration.run(session, steps);
+            } catch (RuntimeException | AssertionError e) {
+                log.debug("Virtual user #{} failed iteration {}.", id, iterations, e);
+                failed = true;
+            }
+
+            Map<String, Double> stepsMs = new LinkedHashMap<>(stepTimer.getStepsMs());
+            stepsMs.put(LoadResult.ITERATION, (System.nanoTime() - dueNanos) / 1_000_000.0);
+            result.recordIteration(stepsMs, failed);
+        }
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long delay = nanos - System.nanoTime();
+
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
+}
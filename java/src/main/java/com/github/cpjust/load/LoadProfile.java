@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * How many virtual users a {@link LoadGenerator} runs and for how long.
+ */
+@Value
+@Builder
+public class LoadProfile {
+    /** The number of concurrent virtual users. */
+    int users;
+    /** The time over which the users are started, evenly spaced. */
+    Duration rampUp;
+    /** How long users keep starting new iterations after the first one started. */
+    Duration duration;
+    /** The most iterations each user runs, or 0 for no limit. */
+    int iterationsPerUser;
+    /** The pause between a user's iterations. */
+    Duration thinkTime;
+
+    /**
+     * Reads the profile from the {@code load.users} (defaults to 10), {@code load.ramp.up.seconds} (30),
+     * {@code load.duration.seconds} (300), {@code load.iterations} (0) and {@code load.think.time.ms} (1000) system
+     * properties.
+     *
+     * @return The profile.
+     */
+    public static LoadProfile fromSystemProperties() {
+        return LoadProfile.builder()
+                .users(Integer.getInteger("load.users", 10))
+                .rampUp(Duration.ofSeconds(Long.getLong("load.ramp.up.seconds", 30)))
+                .duration(Duration.ofSeconds(Long.getLong("load.duration.seconds", 300)))
+                .iterationsPerUser(Integer.getInteger("load.iterations", 0))
+                .thinkTime(Duration.ofMillis(Long.getLong("load.think.time.ms", 1000)))
+                .build();
+    }
+}
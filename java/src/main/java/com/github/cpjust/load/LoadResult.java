@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies and error counts of a {@link LoadGenerator} run, per step.
+ */
+@Slf4j
+public class LoadResult {
+    /** The name of the step that times whole iterations. */
+    public static final String ITERATION = "iteration";
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final AtomicLong iterations = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    @Getter
+    private volatile Duration elapsed = Duration.ZERO;
+
+    void recordIteration(Map<String, Double> stepsMs, boolean failed) {
+        iterations.incrementAndGet();
+
+        if (failed) {
+            errors.incrementAndGet();
+            return;
+        }
+
+        for (Map.Entry<String, Double> step : stepsMs.entrySet()) {
+            getHistogram(step.getKey()).record((long) (step.getValue() * 1000));
+        }
+    }
+
+    void setElapsed(Duration elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return The latency histograms of the successful iterations, by step name and {@link #ITERATION}.
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return The number of iterations run, including failed ones.
+     */
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    /**
+     * @return The number of iterations that failed.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return The fraction of iterations that failed.
+     */
+    public double getErrorRate() {
+        long count = iterations.get();
+        return count == 0 ? 0 : (double) errors.get() / count;
+    }
+
+    /**
+     * Logs the throughput, error rate and latency percentiles of every step.
+     */
+    public void log() {
+        double seconds = Math.max(1, elapsed.toMillis()) / 1000.0;
+        log.info("Load: {} iterations in {} s ({} /s), {} errors ({}%).", getIterations(),
+                String.format("%.1f", seconds), String.format("%.2f", getIterations() / seconds), getErrors(),
+                String.format("%.1f", getErrorRate() * 100));
+
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            log.info("  {}: p50 {} ms, p90 {} ms, p99 {} ms, max {} ms (n={})", entry.getKey(),
+                    toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(90)),
+                    toMillis(histogram.getValueAtPercentile(99)), toMillis(histogram.getMax()),
+                    histogram.getTotalCount());
+        }
+    }
+
+    /**
+     * Writes each step's percentile distribution, in milliseconds, to {@code <step>.hgrm} in a directory.
+     *
+     * @param dir The directory.
+     * @throws IOException If a file can't be written.
+     */
+    public void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8.name())) {
+                entry.getValue().outputPercentileDistribution(out, 1000);
+            }
+
+            Files.write(dir.resolve(entry.getKey() + ".hgrm"), bytes.toByteArray());
+        }
+    }
+
+    private LatencyHistogram getHistogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    private static String toMillis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+}
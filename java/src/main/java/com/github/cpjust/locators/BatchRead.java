@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.locators;
+
+import com.microsoft.playwright.Page;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the text or attributes of several locators in a single browser round trip, instead of one command per value:
+ * <pre>
+ * Map&lt;EchoFirCompressionShortKeys, String&gt; values = LOCATORS.batch()
+ *         .text(PAGE_TITLE)
+ *         .textContent(PRODUCT_AVAILABILITY)
+ *         .read(page);
+ * </pre>
+ * Each value comes from the first element matching the selector, or is null if nothing matches.  Reads aren't waited
+ * for, so wait for the slowest element first if the values are rendered late.
+ *
+ * @param <K> The page's {@link LocatorKey} enum.
+ */
+public class BatchRead<K extends Enum<K> & LocatorKey> {
+    private static final String TEXT = "text";
+    private static final String TEXT_CONTENT = "textContent";
+    private static final String ATTRIBUTE = "attribute";
+    private static final String READ_FUNCTION = "reads => reads.map(([selector, kind, name]) => {"
+            + "  const element = document.querySelector(selector);"
+            + "  if (!element) return null;"
+            + "  if (kind === '" + TEXT + "') return element.innerText;"
+            + "  if (kind === '" + TEXT_CONTENT + "') return element.textContent;"
+            + "  return element.getAttribute(name);"
+            + "})";
+
+    private final LocatorRegistry<K> registry;
+    private final List<K> keys = new ArrayList<>();
+    private final List<List<String>> reads = new ArrayList<>();
+
+    BatchRead(LocatorRegistry<K> registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Reads the rendered text, which is what Selenium's {@code getText()} returns.
+     *
+     * @param key A selector key.
+     * @return This batch.
+     */
+    public BatchRead<K> text(K key) {
+        return add(key, TEXT, "");
+    }
+
+    /**
+     * Reads the text of all child nodes, including hidden ones, which is what Playwright's {@code textContent()} returns.
+     *
+     * @param key A selector key.
+     * @return This batch.
+     */
+    public BatchRead<K> textContent(K key) {
+        return add(key, TEXT_CONTENT, "");
+    }
+
+    /**
+     * @param key       A selector key.
+     * @param attribute The attribute name.
+     * @return This batch.
+     */
+    public BatchRead<K> attribute(K key, String attribute) {
+        return add(key, ATTRIBUTE, attribute);
+    }
+
+    /**
+     * @param page The Playwright page.
+     * @return The values by key, in the order they were added.
+     */
+    public Map<K, String> read(Page page) {
+        return toMap(page.evaluate(READ_FUNCTION, reads));
+    }
+
+    /**
+     * @param driver The Selenium driver.
+     * @return The values by key, in the order they were added.
+     */
+    public Map<K, String> read(WebDriver driver) {
+        return toMap(((JavascriptExecutor) driver).executeScript("return (" + READ_FUNCTION + ")(arguments[0]);", reads));
+    }
+
+    private BatchRead<K> add(K key, String kind, String name) {
+        // Check that the key is a selector.
+        registry.by(key);
+        keys.add(key);
+        reads.add(Arrays.asList(registry.get(key), kind, name));
+        return this;
+    }
+
+    private Map<K, String> toMap(Object result) {
+        List<?> values = (List<?>) result;
+        Map<K, String> map = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = values.get(i);
+            map.put(keys.get(i), value == null ? null : value.toString());
+        }
+
+        return map;
+    }
+}
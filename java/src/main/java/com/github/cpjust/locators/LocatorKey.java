@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.locators;
+
+/**
+ * A key in a page's locator properties file.  Implemented by an enum per page, which is annotated with
+ * {@link LocatorsFile} to say which file it belongs to.
+ */
+public interface LocatorKey {
+    /**
+     * @return The key in the properties file.
+     */
+    String getKey();
+
+    /**
+     * @return True if the value is a CSS selector, false for plain values such as the page URL.
+     */
+    boolean isSelector();
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.locators;
+
+import com.github.cpjust.util.PropertyReader;
+import com.microsoft.playwright.Locator;
+import com.microsoft.playwright.Page;
+import lombok.Getter;
+import org.openqa.selenium.By;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The locators of one page, loaded once per JVM and validated up front so a bad or missing selector fails when the
+ * registry is loaded instead of after a wait timeout.
+ * <p>
+ * Registries are immutable and shared by all threads:
+ * <pre>
+ * private static final LocatorRegistry&lt;EchoFirCompressionShortKeys&gt; LOCATORS =
+ *         LocatorRegistry.of(EchoFirCompressionShortKeys.class);
+ * </pre>
+ *
+ * @param <K> The page's {@link LocatorKey} enum.
+ */
+public class LocatorRegistry<K extends Enum<K> & LocatorKey> {
+    private static final ConcurrentMap<Class<?>, LocatorRegistry<?>> REGISTRIES = new ConcurrentHashMap<>();
+
+    @Getter
+    private final String resourceName;
+    private final Map<K, String> values;
+    private final Map<K, By> byLocators;
+
+    private LocatorRegistry(Class<K> keyType) throws IOException {
+        LocatorsFile locatorsFile = keyType.getAnnotation(LocatorsFile.class);
+
+        if (locatorsFile == null) {
+            throw new IllegalArgumentException(keyType.getName() + " has no @" + LocatorsFile.class.getSimpleName() + "!");
+        }
+
+        resourceName = locatorsFile.value();
+        Properties properties = new PropertyReader().getPropertiesFromResources(resourceName);
+        Map<K, String> loadedValues = new EnumMap<>(keyType);
+        Map<K, By> loadedByLocators = new EnumMap<>(keyType);
+        List<String> problems = new ArrayList<>();
+
+        for (K key : keyType.getEnumConstants()) {
+            String value = properties.getProperty(key.getKey());
+
+            if (value == null || value.trim().isEmpty()) {
+                problems.add(key.getKey() + " is missing");
+                continue;
+            }
+
+            value = value.trim();
+            loadedValues.put(key, value);
+
+            if (key.isSelector()) {
+                String problem = validateSelector(value);
+
+                if (problem != null) {
+                    problems.add(key.getKey() + " = '" + value + "' " + problem);
+                } else {
+                    loadedByLocators.put(key, By.cssSelector(value));
+                }
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid locators in " + resourceName + ": " + String.join("; ", problems));
+        }
+
+        values = Collections.unmodifiableMap(loadedValues);
+        byLocators = Collections.unmodifiableMap(loadedByLocators);
+    }
+
+    /**
+     * Gets the registry for a page, loading it on first use.
+     *
+     * @param keyType The page's key enum.
+     * @param <K>     The page's key enum.
+     * @return The registry.
+     * @throws IllegalStateException If any locator in the file is missing or invalid.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Enum<K> & LocatorKey> LocatorRegistry<K> of(Class<K> keyType) {
+        return (LocatorRegistry<K>) REGISTRIES.computeIfAbsent(keyType, type -> {
+            try {
+                return new LocatorRegistry<>(keyType);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load the locators of " + keyType.getName(), e);
+            }
+        });
+    }
+
+    /**
+     * @param key The key.
+     * @return The value, e.g. a CSS selector or the page URL.
+     */
+    public String get(K key) {
+        return values.get(key);
+    }
+
+    /**
+     * @param key A selector key.
+     * @return The Selenium locator, built once when the registry was loaded.
+     */
+    public By by(K key) {
+        By by = byLocators.get(key);
+
+        if (by == null) {
+            throw new IllegalArgumentException(key.getKey() + " is not a selector!");
+        }
+
+        return by;
+    }
+
+    /**
+     * @param page The page.
+     * @param key  A selector key.
+     * @return A Playwright locator for the selector on the page.
+     */
+    public Locator locator(Page page, K key) {
+        by(key);
+        return page.locator(values.get(key));
+    }
+
+    /**
+     * @return A new batch to read the values of several locators in one browser round trip.
+     */
+    public BatchRead<K> batch() {
+        return new BatchRead<>(this);
+    }
+
+    /**
+     * Catches the selector mistakes that can be found without a browser: unbalanced brackets, parentheses and quotes,
+     * and a selector that is empty or ends with a combinator or comma.  A backslash escapes the next character, e.g.
+     * {@code \'} inside a quoted attribute value or {@code \[} in an ID.
+     *
+     * @return The problem, or null if the selector looks valid.
+     */
+    static String validateSelector(String selector) {
+        Deque<Character> open = new ArrayDeque<>();
+        Character quote = null;
+        boolean escaped = false;
+
+        for (char c : selector.toCharArray()) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (quote != null) {
+                if (c == quote) {
+                    quote = null;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                open.push(c);
+            } else if (c == ']' || c == ')') {
+                char expected = c == ']' ? '[' : '(';
+
+                if (open.isEmpty() || open.pop() != expected) {
+                    return "has an unmatched '" + c + "'";
+                }
+            }
+        }
+
+        if (escaped) {
+            return "ends with an escape";
+        }
+
+        if (quote != null) {
+            return "has an unclosed " + quote;
+        }
+
+        if (!open.isEmpty()) {
+            return "has an unclosed '" + open.peek() + "'";
+        }
+
+        String trimmed = selector.trim();
+
+        if (trimmed.isEmpty()) {
+            return "is empty";
+        }
+
+        char last = trimmed.charAt(trimmed.length() - 1);
+        return last == '>' || last == '+' || last == '~' || last == ',' ? "ends with '" + last + "'" : null;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import lombok.Value;
+
+/**
+ * A metric that went over its budget or regressed against the baseline.
+ */
+@Value
+public class BudgetViolation {
+    String metric;
+    double value;
+    double limit;
+    boolean regression;
+    boolean fatal;
+
+    @Override
+    public String toString() {
+        return String.format("%s = %.0f is over the %s of %.0f", metric, value,
+                regression ? "baseline tolerance" : "budget", limit);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the step times of the engines that ran in this JVM, e.g. the same scenario on Playwright and Selenium.
+ * The comparison is logged when the JVM exits.
+ */
+@Slf4j
+public class EngineComparison {
+    private static final EngineComparison SHARED = new EngineComparison();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SHARED::log, "engine-comparison"));
+    }
+
+    /** Step name -> engine -> {count, total ms}. */
+    private final Map<String, Map<String, double[]>> steps = new TreeMap<>();
+
+    /**
+     * @return The comparison that's logged when the JVM exits.
+     */
+    public static EngineComparison getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @param engine  The engine that ran the steps.
+     * @param stepsMs The time of each step in milliseconds.
+     */
+    public synchronized void add(String engine, Map<String, Double> stepsMs) {
+        for (Map.Entry<String, Double> step : stepsMs.entrySet()) {
+            double[] stats = steps.computeIfAbsent(step.getKey(), name -> new TreeMap<>())
+                    .computeIfAbsent(engine, name -> new double[2]);
+            stats[0]++;
+            stats[1] += step.getValue();
+        }
+    }
+
+    /**
+     * @param step   The step name.
+     * @param engine The engine.
+     * @return The average time of the step on the engine in milliseconds, or NaN if it never ran.
+     */
+    public synchronized double getAverageMs(String step, String engine) {
+        double[] stats = steps.getOrDefault(step, new TreeMap<>()).get(engine);
+        return stats == null ? Double.NaN : stats[1] / stats[0];
+    }
+
+    /**
+     * Logs the average time of every step per engine, and how much slower each engine was than the fastest.
+     */
+    public synchronized void log() {
+        for (Map.Entry<String, Map<String, double[]>> step : steps.entrySet()) {
+            double fastest = Double.MAX_VALUE;
+
+            for (double[] stats : step.getValue().values()) {
+                fastest = Math.min(fastest, stats[1] / stats[0]);
+            }
+
+            StringBuilder line = new StringBuilder();
+
+            for (Map.Entry<String, double[]> engine : step.getValue().entrySet()) {
+                double[] stats = engine.getValue();
+                double averageMs = stats[1] / stats[0];
+                line.append(line.length() == 0 ? "" : ", ")
+                        .append(String.format("%s %.1f ms (n=%d, %.2fx)", engine.getKey(), averageMs, (long) stats[0],
+                                fastest > 0 ? averageMs / fastest : 1.0));
+            }
+
+            log.info("Step '{}': {}", step.getKey(), line);
+        }
+    }
+}
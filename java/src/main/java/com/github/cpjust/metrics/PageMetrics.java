@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The front-end performance of the page at the end of one test.  All times are in milliseconds from the start of the
+ * navigation.
+ */
+@Data
+public class PageMetrics {
+    private String test;
+    private String engine;
+    private String url;
+    private long timestamp;
+    /** Free-form labels such as the network profile the test ran under. */
+    private Map<String, String> labels = new LinkedHashMap<>();
+    /** The times of the steps timed with a {@link StepTimer}. */
+    private Map<String, Double> stepsMs = new LinkedHashMap<>();
+
+    // Navigation Timing
+    private double timeToFirstByteMs;
+    private double domContentLoadedMs;
+    private double loadMs;
+
+    // Paint Timing
+    private double firstPaintMs;
+    private double firstContentfulPaintMs;
+    private double largestContentfulPaintMs;
+
+    // Resource Timing
+    private long requestCount;
+    private long transferredBytes;
+
+    // CDP Performance.getMetrics
+    private long jsHeapUsedBytes;
+    private long jsHeapTotalBytes;
+    private Map<String, Double> cdpMetrics = new LinkedHashMap<>();
+}
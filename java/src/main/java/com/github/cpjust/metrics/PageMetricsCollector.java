@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.microsoft.playwright.CDPSession;
+import com.microsoft.playwright.Page;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link PageMetrics} from a page through the browser's performance APIs and the CDP {@code Performance} domain.
+ * Call the {@code enable} method before navigating so the CDP counters cover the whole test.
+ */
+public class PageMetricsCollector {
+    private static final Gson GSON = new Gson();
+    private static final String METRICS_SCRIPT = loadScript("scripts/page-metrics.js");
+
+    private PageMetricsCollector() {
+    }
+
+    /**
+     * Starts collecting CDP performance counters for a Playwright page.
+     *
+     * @param cdpSession A CDP session for the page.
+     */
+    public static void enable(CDPSession cdpSession) {
+        cdpSession.send("Performance.enable");
+    }
+
+    /**
+     * Starts collecting CDP performance counters for a Chrome driver.
+     *
+     * @param driver The driver.
+     */
+    public static void enable(ChromeDriver driver) {
+        driver.executeCdpCommand("Performance.enable", Collections.emptyMap());
+    }
+
+    /**
+     * Collects the metrics of a Playwright page.
+     *
+     * @param page       The page.
+     * @param cdpSession The CDP session {@link #enable(CDPSession)} was called with.
+     * @return The metrics.
+     */
+    public static PageMetrics collect(Page page, CDPSession cdpSession) {
+        PageMetrics metrics = GSON.fromJson((String) page.evaluate(METRICS_SCRIPT), PageMetrics.class);
+        metrics.setEngine("playwright");
+        metrics.setUrl(page.url());
+
+        JsonObject result = cdpSession.send("Performance.getMetrics");
+
+        for (JsonElement metric : result.getAsJsonArray("metrics")) {
+            JsonObject nameAndValue = metric.getAsJsonObject();
+            addCdpMetric(metrics, nameAndValue.get("name").getAsString(), nameAndValue.get("value").getAsDouble());
+        }
+
+        return finish(metrics);
+    }
+
+    /**
+     * Collects the metrics of the Chrome driver's current page.
+     *
+     * @param driver The driver {@link #enable(ChromeDriver)} was called with.
+     * @return The metrics.
+     */
+    @SuppressWarnings("unchecked")
+    public static PageMetrics collect(ChromeDriver driver) {
+        String json = (String) driver.executeAsyncScript("const done = arguments[arguments.length - 1];"
+                + " (" + METRICS_SCRIPT + ")().then(done);");
+        PageMetrics metrics = GSON.fromJson(json, PageMetrics.class);
+        metrics.setEngine("selenium");
+        metrics.setUrl(driver.getCurrentUrl());
+
+        Map<String, Object> result = driver.executeCdpCommand("Performance.getMetrics", Collections.emptyMap());
+
+        for (Map<String, Object> metric : (List<Map<String, Object>>) result.get("metrics")) {
+            addCdpMetric(metrics, (String) metric.get("name"), ((Number) metric.get("value")).doubleValue());
+        }
+
+        return finish(metrics);
+    }
+
+    private static void addCdpMetric(PageMetrics metrics, String name, double value) {
+        metrics.getCdpMetrics().put(name, value);
+
+        if ("JSHeapUsedSize".equals(name)) {
+            metrics.setJsHeapUsedBytes((long) value);
+        } else if ("JSHeapTotalSize".equals(name)) {
+            metrics.setJsHeapTotalBytes((long) value);
+        }
+    }
+
+    private static PageMetrics finish(PageMetrics metrics) {
+        metrics.setTimestamp(System.currentTimeMillis());
+        return metrics;
+    }
+
+    private static String loadScript(String resourceName) {
+        ClassLoader loader = PageMetricsCollector.class.getClassLoader();
+
+        try (InputStream resourceStream = loader.getResourceAsStream(resourceName)) {
+            if (resourceStream == null) {
+                throw new IllegalStateException("Script not found: " + resourceName);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = resourceStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+
+            // Drop the leading comment so the script can be wrapped in parentheses.
+            String script = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+            return script.substring(script.indexOf("()")).trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read script: " + resourceName, e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends {@link PageMetrics} records to a newline delimited JSON file, one line per test.
+ * <p>
+ * Metrics are collected when the {@code metrics.enabled} system property is true, and written to the file in
+ * {@code metrics.file} (defaults to {@code target/metrics/page-metrics.ndjson}).
+ */
+@Slf4j
+public class PageMetricsWriter {
+    private static final Gson GSON = new Gson();
+    private static final PageMetricsWriter SHARED = new PageMetricsWriter(
+            Paths.get(System.getProperty("metrics.file", "target/metrics/page-metrics.ndjson")));
+
+    private final Path file;
+
+    /**
+     * @param file The file to append to.
+     */
+    public PageMetricsWriter(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return True if the tests should collect page metrics.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("metrics.enabled");
+    }
+
+    /**
+     * @return The writer for the file in the {@code metrics.file} system property.
+     */
+    public static PageMetricsWriter getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Appends a record.  Failures are logged rather than thrown so they don't fail the test.
+     *
+     * @param metrics The metrics to write.
+     */
+    public synchronized void write(PageMetrics metrics) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                writer.write(GSON.toJson(metrics));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write the page metrics of {} to {}", metrics.getTest(), file, e);
+        }
+    }
+}
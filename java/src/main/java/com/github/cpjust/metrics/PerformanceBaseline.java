@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The last few values of every metric of every test, kept in a JSON file between runs so a run can be compared with
+ * the ones before it.  Parallel shards can share the file: each merges its own values into it when it's saved.
+ */
+public class PerformanceBaseline {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Type HISTORY_TYPE = new TypeToken<TreeMap<String, TreeMap<String, List<Double>>>>() {
+    }.getType();
+
+    private final Path file;
+    private final int window;
+    private final Map<String, Map<String, List<Double>>> history;
+    /** The values added in this run, which {@link #save()} merges into the file. */
+    private final Map<String, Map<String, List<Double>>> added = new TreeMap<>();
+
+    private PerformanceBaseline(Path file, int window, Map<String, Map<String, List<Double>>> history) {
+        this.file = file;
+        this.window = window;
+        this.history = history;
+    }
+
+    /**
+     * Loads the baseline, or starts an empty one if the file doesn't exist yet.
+     *
+     * @param file   The baseline file.
+     * @param window How many values to keep per test and metric.
+     * @return The baseline.
+     * @throws IOException If the file can't be read.
+     */
+    public static PerformanceBaseline load(Path file, int window) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return new PerformanceBaseline(file, window, new TreeMap<>());
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, Map<String, List<Double>>> history = GSON.fromJson(reader, HISTORY_TYPE);
+            return new PerformanceBaseline(file, window, history == null ? new TreeMap<>() : history);
+        }
+    }
+
+    /**
+     * Gets the median of the values in the baseline.
+     *
+     * @param test   The test.
+     * @param metric     The metric.
+     * @param minSamples The fewest values needed for a meaningful median.
+     * @return The median, or null if there are fewer than {@code minSamples} values.
+     */
+    public synchronized Double getMedian(String test, String metric, int minSamples) {
+        List<Double> values = history.getOrDefault(test, Collections.emptyMap())
+                .getOrDefault(metric, Collections.emptyList());
+
+        if (values.isEmpty() || values.size() < minSamples) {
+            return null;
+        }
+
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    /**
+     * Adds a value, dropping the oldest one if the window is full.
+     *
+     * @param test   The test.
+     * @param metric The metric.
+     * @param value  The value.
+     */
+    public synchronized void add(String test, String metric, double value) {
+        append(history, test, metric, Collections.singletonList(value));
+        added.computeIfAbsent(test, key -> new TreeMap<>()).computeIfAbsent(metric, key -> new ArrayList<>()).add(value);
+    }
+
+    /**
+     * Merges the values added in this run into the file.  The file is locked while it's updated, so shards sharing it
+     * don't lose each other's values.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public synchronized void save() throws IOException {
+        if (added.isEmpty()) {
+            return;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+
+            try {
+                ByteBuffer existing = ByteBuffer.allocate((int) channel.size());
+
+                while (existing.hasRemaining() && channel.read(existing) >= 0) {
+                    // Keep reading until the whole file is in the buffer.
+                }
+
+                Map<String, Map<String, List<Double>>> saved = GSON.fromJson(
+                        new String(existing.array(), StandardCharsets.UTF_8), HISTORY_TYPE);
+
+                if (saved == null) {
+                    saved = new TreeMap<>();
+                }
+
+                for (Map.Entry<String, Map<String, List<Double>>> test : added.entrySet()) {
+                    for (Map.Entry<String, List<Double>> metric : test.getValue().entrySet()) {
+                        append(saved, test.getKey(), metric.getKey(), metric.getValue());
+                    }
+                }
+
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(GSON.toJson(saved).getBytes(StandardCharsets.UTF_8)), 0);
+            } finally {
+                lock.release();
+            }
+        }
+
+        added.clear();
+    }
+
+    /**
+     * Appends values, dropping the oldest ones beyond the window.
+     */
+    private void append(Map<String, Map<String, List<Double>>> values, String test, String metric,
+                        List<Double> newValues) {
+        List<Double> metricValues = values.computeIfAbsent(test, key -> new TreeMap<>())
+                .computeIfAbsent(metric, key -> new ArrayList<>());
+        metricValues.addAll(newValues);
+
+        while (metricValues.size() > window) {
+            metricValues.remove(0);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import com.github.cpjust.util.PropertyReader;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Checks a test's step times and page metrics against fixed limits and against a rolling {@link PerformanceBaseline},
+ * so performance regressions fail in the same run as functional ones.
+ * <p>
+ * Both are kept per network profile, since the same test is much slower on a throttled network: a limit can be set for
+ * one profile with {@code network.<profile>.<metric>.max}, and otherwise {@code <metric>.max} applies to every profile.
+ * <p>
+ * Enabled with {@code -Dbudgets.enabled=true}.  The limits are read from the {@code budgets.file} resource (see
+ * {@link #DEFAULT_BUDGETS_FILE} for the format) and the baseline is kept in the {@code budgets.baseline.file} file
+ * (defaults to {@code perf-baseline/baseline.json}), which is saved when the JVM exits.
+ */
+@Slf4j
+public class PerformanceBudgets {
+    public static final String DEFAULT_BUDGETS_FILE = "locators/magento.softwaretestingboard.com/EchoFirCompressionShortBudgets.properties";
+
+    private static final Gson GSON = new Gson();
+    private static PerformanceBudgets shared;
+
+    /** "[network.<profile>.]<metric>" -> the limit. */
+    private final Map<String, Double> limits = new LinkedHashMap<>();
+    private final Map<String, Boolean> fatalLimits = new LinkedHashMap<>();
+    private final double tolerance;
+    private final boolean fatalRegressions;
+    private final int minSamples;
+    private final PerformanceBaseline baseline;
+
+    /**
+     * @param budgets  The budget properties.
+     * @param baseline The baseline to compare with and add to.
+     */
+    public PerformanceBudgets(Properties budgets, PerformanceBaseline baseline) {
+        this.baseline = baseline;
+        this.tolerance = Double.parseDouble(budgets.getProperty("regression.tolerance", "0.25"));
+        this.fatalRegressions = "fail".equalsIgnoreCase(budgets.getProperty("regression.enforce", "warn"));
+        this.minSamples = Integer.parseInt(budgets.getProperty("regression.min.samples", "3"));
+
+        for (String key : budgets.stringPropertyNames()) {
+            if (key.endsWith(".max")) {
+                String metric = key.substring(0, key.length() - ".max".length());
+                limits.put(metric, Double.parseDouble(budgets.getProperty(key)));
+                fatalLimits.put(metric, !"warn".equalsIgnoreCase(budgets.getProperty(metric + ".enforce", "fail")));
+            }
+        }
+    }
+
+    /**
+     * @return True if the tests should check performance budgets.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("budgets.enabled");
+    }
+
+    /**
+     * @return The budgets configured by the system properties, loaded once per JVM.
+     */
+    public static synchronized PerformanceBudgets getShared() {
+        if (shared == null) {
+            try {
+                Properties budgets = new PropertyReader().getPropertiesFromResources(
+                        System.getProperty("budgets.file", DEFAULT_BUDGETS_FILE));
+                int window = Integer.parseInt(budgets.getProperty("regression.window", "10"));
+                PerformanceBaseline baseline = PerformanceBaseline.load(
+                        Paths.get(System.getProperty("budgets.baseline.file", "perf-baseline/baseline.json")), window);
+                shared = new PerformanceBudgets(budgets, baseline);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load the performance budgets!", e);
+            }
+
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::saveBaseline, "performance-baseline-writer"));
+        }
+
+        return shared;
+    }
+
+    /**
+     * Gets the measurements of a test as budget metric names: {@code step.<name>} for the timed steps and
+     * {@code page.<field>} for the numeric page metrics.
+     *
+     * @param metrics The test's metrics.
+     * @return The measurements.
+     */
+    public static Map<String, Double> toMeasurements(PageMetrics metrics) {
+        Map<String, Double> measurements = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Double> step : metrics.getStepsMs().entrySet()) {
+            measurements.put("step." + step.getKey(), step.getValue());
+        }
+
+        JsonObject json = GSON.toJsonTree(metrics).getAsJsonObject();
+
+        for (Map.Entry<String, JsonElement> field : json.entrySet()) {
+            if (field.getValue().isJsonPrimitive() && field.getValue().getAsJsonPrimitive().isNumber()
+                    && !"timestamp".equals(field.getKey())) {
+                measurements.put("page." + field.getKey(), field.getValue().getAsDouble());
+            }
+        }
+
+        return measurements;
+    }
+
+    /**
+     * Checks a test's measurements and adds them to the baseline.
+     *
+     * @param test         The test name.
+     * @param network      The network profile the test ran with, or null if the network wasn't emulated.
+     * @param measurements The measurements, see {@link #toMeasurements(PageMetrics)}.
+     * @return The violations, both fatal and warnings.
+     */
+    public List<BudgetViolation> check(String test, String network, Map<String, Double> measurements) {
+        List<BudgetViolation> violations = new ArrayList<>();
+        // Every profile gets a baseline of its own, or the medians would mix fast and throttled runs.
+        String baselineKey = network == null ? test : test + " [" + network + "]";
+
+        for (Map.Entry<String, Double> measurement : measurements.entrySet()) {
+            String metric = measurement.getKey();
+            double value = measurement.getValue();
+            String limitKey = network != null && limits.containsKey("network." + network + "." + metric)
+                    ? "network." + network + "." + metric : metric;
+            Double limit = limits.get(limitKey);
+
+            if (limit != null && value > limit) {
+                violations.add(new BudgetViolation(metric, value, limit, false, fatalLimits.get(limitKey)));
+            }
+
+            // Only metrics with a budget are tracked, so the baseline doesn't fill up with noise.
+            if (limit != null) {
+                Double median = baseline.getMedian(baselineKey, metric, minSamples);
+
+                if (median != null && value > median * (1 + tolerance)) {
+                    violations.add(new BudgetViolation(metric, value, median * (1 + tolerance), true, fatalRegressions));
+                }
+
+                baseline.add(baselineKey, metric, value);
+            }
+        }
+
+        return violations;
+    }
+
+    /**
+     * Checks a test's metrics against the budgets for its {@code network} label, logging every violation.
+     *
+     * @param test    The test name.
+     * @param metrics The test's metrics.
+     * @return A description of the violations that should fail the test, or null if there are none.
+     */
+    public String enforce(String test, PageMetrics metrics) {
+        List<String> fatalViolations = new ArrayList<>();
+
+        for (BudgetViolation violation : check(test, metrics.getLabels().get("network"), toMeasurements(metrics))) {
+            log.warn("{}: {}", test, violation);
+
+            if (violation.isFatal()) {
+                fatalViolations.add(violation.toString());
+            }
+        }
+
+        return fatalViolations.isEmpty() ? null : "Performance budget exceeded: " + String.join("; ", fatalViolations);
+    }
+
+    private void saveBaseline() {
+        try {
+            baseline.save();
+        } catch (IOException e) {
+            log.warn("Failed to save the performance baseline.", e);
+        }
+    }
+}
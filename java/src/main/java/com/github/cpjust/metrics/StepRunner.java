@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs and times the named steps of a test.  Implemented by the test base classes so shared scenarios can time their
+ * steps on either engine.
+ */
+public interface StepRunner {
+    /**
+     * Runs and times a step.
+     *
+     * @param name The step name, e.g. "navigate".
+     * @param step The step.
+     */
+    default void step(String name, Runnable step) {
+        step(name, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs and times a step that returns a value.
+     *
+     * @param name The step name, e.g. "navigate".
+     * @param step The step.
+     * @param <T>  The type of the result.
+     * @return The step's result.
+     */
+    <T> T step(String name, Supplier<T> step);
+}
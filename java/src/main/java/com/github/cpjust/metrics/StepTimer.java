@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Times the named steps of one test, e.g. "navigate" or "add-to-cart".  A step that runs more than once is summed.
+ */
+public class StepTimer {
+    private final Map<String, Double> stepsMs = new LinkedHashMap<>();
+    private final List<Timing> timings = new ArrayList<>();
+
+    /**
+     * Runs and times a step.
+     *
+     * @param name The step name.
+     * @param step The step.
+     */
+    public void time(String name, Runnable step) {
+        time(name, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs and times a step that returns a value.
+     *
+     * @param name The step name.
+     * @param step The step.
+     * @param <T>  The type of the result.
+     * @return The step's result.
+     */
+    public <T> T time(String name, Supplier<T> step) {
+        long startEpochMs = System.currentTimeMillis();
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            T result = step.get();
+            failed = false;
+            return result;
+        } finally {
+            double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+            stepsMs.merge(name, elapsedMs, Double::sum);
+            timings.add(new Timing(name, startEpochMs, elapsedMs, failed));
+        }
+    }
+
+    /**
+     * @return The time of each step in milliseconds, in the order they first ran.
+     */
+    public Map<String, Double> getStepsMs() {
+        return Collections.unmodifiableMap(stepsMs);
+    }
+
+    /**
+     * @return Every run of every step, in the order they ran.
+     */
+    public List<Timing> getTimings() {
+        return Collections.unmodifiableList(timings);
+    }
+
+    /**
+     * One run of a step.
+     */
+    @Value
+    public static class Timing {
+        String name;
+        long startEpochMs;
+        double durationMs;
+        boolean failed;
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A minimal reader/writer for HAR 1.2 files, covering what's needed to replay responses.
+ * Files recorded by Playwright's {@code routeFromHAR} (with embedded content) can be read as well.
+ */
+public class HarArchive {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final Path harPath;
+    private final Har har;
+    private final Map<String, HarEntry> entriesByRequest = new ConcurrentHashMap<>();
+
+    private HarArchive(Path harPath, Har har) {
+        this.harPath = harPath;
+        this.har = har;
+
+        for (HarEntry entry : har.getLog().getEntries()) {
+            // The first response wins, like Playwright's replay.
+            entriesByRequest.putIfAbsent(key(entry.getRequest().getMethod(), entry.getRequest().getUrl()), entry);
+        }
+    }
+
+    /**
+     * Loads a HAR file.
+     *
+     * @param harPath The HAR file.
+     * @return The archive.
+     * @throws IOException If the file can't be read.
+     */
+    public static HarArchive load(Path harPath) throws IOException {
+        try (Reader reader = Files.newBufferedReader(harPath, StandardCharsets.UTF_8)) {
+            return new HarArchive(harPath, GSON.fromJson(reader, Har.class));
+        }
+    }
+
+    /**
+     * Creates an empty archive to record into.
+     *
+     * @param harPath The file {@link #save()} writes to.
+     * @return The archive.
+     */
+    public static HarArchive create(Path harPath) {
+        HarLog log = new HarLog();
+        log.setVersion("1.2");
+        log.setCreator(new HarCreator());
+        log.setEntries(new ArrayList<>());
+
+        Har har = new Har();
+        har.setLog(log);
+        return new HarArchive(harPath, har);
+    }
+
+    /**
+     * Finds the recorded response for a request.
+     *
+     * @param method The HTTP method.
+     * @param url    The full URL.
+     * @return The recorded entry, if there is one.
+     */
+    public Optional<HarEntry> find(String method, String url) {
+        return Optional.ofNullable(entriesByRequest.get(key(method, url)));
+    }
+
+    /**
+     * Records a response.
+     *
+     * @param method  The HTTP method.
+     * @param url     The full URL.
+     * @param status  The response status.
+     * @param headers The response headers.
+     * @param body    The response body.
+     */
+    public synchronized void add(String method, String url, int status, List<HarHeader> headers, byte[] body) {
+        HarRequest request = new HarRequest();
+        request.setMethod(method);
+        request.setUrl(url);
+
+        HarContent content = new HarContent();
+        content.setSize(body.length);
+        content.setText(Base64.getEncoder().encodeToString(body));
+        content.setEncoding("base64");
+
+        HarResponse response = new HarResponse();
+        response.setStatus(status);
+        response.setHeaders(headers);
+        response.setContent(content);
+
+        HarEntry entry = new HarEntry();
+        entry.setRequest(request);
+        entry.setResponse(response);
+
+        har.getLog().getEntries().add(entry);
+        entriesByRequest.putIfAbsent(key(method, url), entry);
+    }
+
+    /**
+     * @return The number of recorded entries.
+     */
+    public int size() {
+        return har.getLog().getEntries().size();
+    }
+
+    /**
+     * Writes the archive to its file.  The file is replaced in one move, so a reader never sees half of it.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public synchronized void save() throws IOException {
+        Path harDir = harPath.toAbsolutePath().getParent();
+        Files.createDirectories(harDir);
+        Path tempFile = Files.createTempFile(harDir, harPath.getFileName().toString(), ".tmp");
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                GSON.toJson(har, writer);
+            }
+
+            Files.move(tempFile, harPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Gets the body of a recorded response, reading it from a separate file if Playwright stored it that way.
+     *
+     * @param entry The entry.
+     * @return The response body.
+     * @throws IOException If the body file can't be read.
+     */
+    public byte[] getBody(HarEntry entry) throws IOException {
+        HarContent content = entry.getResponse().getContent();
+
+        if (content == null) {
+            return new byte[0];
+        }
+
+        if (content.getFile() != null) {
+            return Files.readAllBytes(harPath.toAbsolutePath().getParent().resolve(content.getFile()));
+        }
+
+        if (content.getText() == null) {
+            return new byte[0];
+        }
+
+        return "base64".equals(content.getEncoding())
+                ? Base64.getDecoder().decode(content.getText())
+                : content.getText().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String key(String method, String url) {
+        return method.toUpperCase(Locale.ROOT) + " " + url;
+    }
+
+    @Data
+    public static class Har {
+        private HarLog log;
+    }
+
+    @Data
+    public static class HarLog {
+        private String version;
+        private HarCreator creator;
+        private List<HarEntry> entries = new ArrayList<>();
+    }
+
+    @Data
+    public static class HarCreator {
+        private String name = "playwright-test";
+        private String version = "1.0";
+    }
+
+    @Data
+    public static class HarEntry {
+        private HarRequest request;
+        private HarResponse response;
+    }
+
+    @Data
+    public static class HarRequest {
+        private String method;
+        private String url;
+    }
+
+    @Data
+    public static class HarResponse {
+        private int status;
+        private List<HarHeader> headers = new ArrayList<>();
+        private HarContent content;
+    }
+
+    @Data
+    public static class HarHeader {
+        private String name;
+        private String value;
+
+        public HarHeader() {
+        }
+
+        public HarHeader(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    @Data
+    public static class HarContent {
+        private long size;
+        private String mimeType;
+        private String text;
+        private String encoding;
+        @SerializedName("_file")
+        private String file;
+    }
+}
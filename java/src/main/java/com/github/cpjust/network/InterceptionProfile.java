@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import com.github.cpjust.util.PropertyReader;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A named set of rules for aborting or stubbing requests the tests don't need, such as images, fonts and trackers.
+ * Profiles are read from a properties file next to the locators.  See {@code InterceptionProfiles.properties}.
+ */
+public class InterceptionProfile {
+    public static final String DEFAULT_PROFILES_FILE = "locators/magento.softwaretestingboard.com/InterceptionProfiles.properties";
+
+    private static final Pattern REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Map<String, List<String>> EXTENSIONS_BY_RESOURCE_TYPE = new HashMap<>();
+
+    static {
+        EXTENSIONS_BY_RESOURCE_TYPE.put("image", Arrays.asList("png", "jpg", "jpeg", "gif", "webp", "svg", "ico"));
+        EXTENSIONS_BY_RESOURCE_TYPE.put("font", Arrays.asList("woff", "woff2", "ttf", "otf", "eot"));
+        EXTENSIONS_BY_RESOURCE_TYPE.put("media", Arrays.asList("mp4", "webm", "ogg", "mp3", "wav"));
+        EXTENSIONS_BY_RESOURCE_TYPE.put("stylesheet", Collections.singletonList("css"));
+        EXTENSIONS_BY_RESOURCE_TYPE.put("script", Collections.singletonList("js"));
+    }
+
+    /**
+     * What to do with a request.
+     */
+    public enum Action {
+        ALLOW,
+        BLOCK,
+        STUB
+    }
+
+    @Getter
+    private final String name;
+    private final Set<String> blockedResourceTypes;
+    private final List<String> blockedUrlPatterns;
+    private final List<String> stubbedUrlPatterns;
+    private final List<Pattern> blockedUrls = new ArrayList<>();
+    private final List<Pattern> stubbedUrls = new ArrayList<>();
+
+    private InterceptionProfile(String name, Set<String> blockedResourceTypes, List<String> blockedUrlPatterns,
+                                List<String> stubbedUrlPatterns) {
+        this.name = name;
+        this.blockedResourceTypes = blockedResourceTypes;
+        this.blockedUrlPatterns = blockedUrlPatterns;
+        this.stubbedUrlPatterns = stubbedUrlPatterns;
+
+        for (String pattern : blockedUrlPatterns) {
+            blockedUrls.add(globToRegex(pattern));
+        }
+
+        for (String pattern : stubbedUrlPatterns) {
+            stubbedUrls.add(globToRegex(pattern));
+        }
+    }
+
+    /**
+     * Loads the profile named in the {@code interception.profile} system property from the
+     * {@code interception.profiles.file} resource (defaults to {@link #DEFAULT_PROFILES_FILE}).
+     *
+     * @return The profile, or null if no profile is set.
+     * @throws IOException If the profiles file can't be read.
+     */
+    public static InterceptionProfile fromSystemProperties() throws IOException {
+        String profileName = System.getProperty("interception.profile", "none").trim();
+
+        if (profileName.isEmpty() || "none".equalsIgnoreCase(profileName)) {
+            return null;
+        }
+
+        return load(System.getProperty("interception.profiles.file", DEFAULT_PROFILES_FILE), profileName);
+    }
+
+    /**
+     * Loads a profile.
+     *
+     * @param resourceName The profiles properties file on the classpath.
+     * @param profileName  The profile to load.
+     * @return The profile.
+     * @throws IOException If the profiles file can't be read.
+     */
+    public static InterceptionProfile load(String resourceName, String profileName) throws IOException {
+        Properties properties = new PropertyReader().getPropertiesFromResources(resourceName);
+        String prefix = profileName + ".";
+
+        if (properties.stringPropertyNames().stream().noneMatch(key -> key.startsWith(prefix))) {
+            throw new IllegalArgumentException("No interception profile named '" + profileName + "' in " + resourceName);
+        }
+
+        Set<String> resourceTypes = new LinkedHashSet<>();
+
+        for (String resourceType : getList(properties, prefix + "resource.types")) {
+            resourceTypes.add(resourceType.toLowerCase(Locale.ROOT));
+        }
+
+        return new InterceptionProfile(profileName, resourceTypes, getList(properties, prefix + "block.urls"),
+                getList(properties, prefix + "stub.urls"));
+    }
+
+    /**
+     * Decides what to do with a request.
+     *
+     * @param resourceType The Playwright resource type, e.g. "image".
+     * @param url          The request URL.
+     * @return The action to take.
+     */
+    public Action getAction(String resourceType, String url) {
+        if (blockedResourceTypes.contains(resourceType)) {
+            return Action.BLOCK;
+        }
+
+        for (Pattern pattern : blockedUrls) {
+            if (pattern.matcher(url).matches()) {
+                return Action.BLOCK;
+            }
+        }
+
+        for (Pattern pattern : stubbedUrls) {
+            if (pattern.matcher(url).matches()) {
+                return Action.STUB;
+            }
+        }
+
+        return Action.ALLOW;
+    }
+
+    /**
+     * Gets the patterns to pass to the CDP {@code Network.setBlockedURLs} command, which can only block by URL.
+     * Blocked resource types become file extension patterns and stubbed URLs are blocked.
+     *
+     * @return The URL patterns.
+     */
+    public List<String> getCdpBlockedUrls() {
+        List<String> urls = new ArrayList<>(blockedUrlPatterns);
+
+        for (String resourceType : blockedResourceTypes) {
+            for (String extension : EXTENSIONS_BY_RESOURCE_TYPE.getOrDefault(resourceType, Collections.emptyList())) {
+                urls.add("*." + extension);
+                urls.add("*." + extension + "?*");
+            }
+        }
+
+        urls.addAll(stubbedUrlPatterns);
+
+        return urls;
+    }
+
+    private static List<String> getList(Properties properties, String key) {
+        Set<String> resolving = new LinkedHashSet<>(Collections.singleton(key));
+        String value = resolveReferences(properties, properties.getProperty(key, ""), resolving);
+        List<String> values = new ArrayList<>();
+
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                values.add(item.trim());
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Replaces ${key} references so one profile can build on another.
+     *
+     * @param resolving The keys whose references are being resolved, to detect a key that refers back to itself.
+     */
+    private static String resolveReferences(Properties properties, String value, Set<String> resolving) {
+        Matcher matcher = REFERENCE.matcher(value);
+        StringBuffer resolved = new StringBuffer();
+
+        while (matcher.find()) {
+            String key = matcher.group(1);
+
+            if (!resolving.add(key)) {
+                throw new IllegalArgumentException("Circular reference in the interception profiles: "
+                        + String.join(" -> ", resolving) + " -> " + key);
+            }
+
+            String reference = resolveReferences(properties, properties.getProperty(key, ""), resolving);
+            resolving.remove(key);
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(reference));
+        }
+
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    private static Pattern globToRegex(String glob) {
+        String[] parts = glob.split("\\*", -1);
+        StringBuilder regex = new StringBuilder();
+
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+
+            if (!parts[i].isEmpty()) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts what an {@link InterceptionProfile} did during one test, so the requests it saved can be reported per test.
+ * <p>
+ * An aborted response is never downloaded, so its size is unknown and the bytes saved aren't reported.  They're the
+ * difference in bytes transferred against a run with the profile set to {@code none}.
+ */
+public class InterceptionStats {
+    /**
+     * A JavaScript function returning {@code [requestCount, transferredBytes]} for the current page, from the
+     * Resource Timing API.  Blocked requests never show up in it.
+     */
+    public static final String TRANSFER_SCRIPT = "() => {"
+            + " const entries = performance.getEntriesByType('navigation').concat(performance.getEntriesByType('resource'));"
+            + " return [entries.length, entries.reduce((total, entry) => total + (entry.transferSize || 0), 0)];"
+            + " }";
+
+    private final Map<String, AtomicInteger> blockedByType = new ConcurrentSkipListMap<>();
+    private final AtomicInteger blocked = new AtomicInteger();
+    private final AtomicInteger stubbed = new AtomicInteger();
+    private final AtomicInteger allowed = new AtomicInteger();
+
+    /**
+     * Records the action taken for a request.
+     *
+     * @param action       The action.
+     * @param resourceType The request's resource type.
+     */
+    public void record(InterceptionProfile.Action action, String resourceType) {
+        switch (action) {
+            case BLOCK:
+                blocked.incrementAndGet();
+                blockedByType.computeIfAbsent(resourceType, type -> new AtomicInteger()).incrementAndGet();
+                break;
+            case STUB:
+                stubbed.incrementAndGet();
+                break;
+            default:
+                allowed.incrementAndGet();
+                break;
+        }
+    }
+
+    /**
+     * Builds a one line summary for the log.
+     *
+     * @param transfer The result of {@link #TRANSFER_SCRIPT}, or null if it couldn't be run.
+     * @return The summary.
+     */
+    public String summarize(List<?> transfer) {
+        StringBuilder summary = new StringBuilder();
+
+        if (blocked.get() + stubbed.get() + allowed.get() > 0) {
+            summary.append(String.format("saved %d requests (blocked %d %s, stubbed %d), allowed %d",
+                    getSavedRequests(), blocked.get(), blockedByType, stubbed.get(), allowed.get()));
+        } else {
+            summary.append("blocked requests are not counted for this driver");
+        }
+
+        if (transfer != null && transfer.size() == 2) {
+            long requests = ((Number) transfer.get(0)).longValue();
+            summary.append(String.format("; %d requests transferred %d KB", requests, getBytes(transfer) / 1024));
+        }
+
+        return summary.toString();
+    }
+
+    /**
+     * @return The requests that were blocked or stubbed rather than sent to the server.
+     */
+    public int getSavedRequests() {
+        return blocked.get() + stubbed.get();
+    }
+
+    /**
+     * @param transfer The result of {@link #TRANSFER_SCRIPT}, or null if it couldn't be run.
+     * @return The bytes the page transferred, or null if they're unknown.
+     */
+    public static Long getBytes(List<?> transfer) {
+        return transfer != null && transfer.size() == 2 ? ((Number) transfer.get(1)).longValue() : null;
+    }
+}
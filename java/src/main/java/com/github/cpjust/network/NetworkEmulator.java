@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import com.microsoft.playwright.CDPSession;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Applies a {@link NetworkSchedule} to one browser context.  The conditions are only sent to the browser when the
+ * profile actually changes, so a fixed profile is applied exactly once.
+ * <p>
+ * Browser drivers aren't thread safe, so the emulator never switches profiles on its own thread; the owner calls
+ * {@link #update()} at convenient points (e.g. on every request, or between test steps).
+ */
+@Slf4j
+public class NetworkEmulator {
+    @Getter
+    private final NetworkSchedule schedule;
+    private final Consumer<NetworkProfile> applier;
+    private final long startNanos = System.nanoTime();
+    private NetworkProfile currentProfile;
+
+    private NetworkEmulator(NetworkSchedule schedule, Consumer<NetworkProfile> applier) {
+        this.schedule = schedule;
+        this.applier = applier;
+        update();
+    }
+
+    /**
+     * Starts emulating the schedule on a Playwright page through CDP.
+     *
+     * @param schedule   The schedule.
+     * @param cdpSession A CDP session for the page.
+     * @return The emulator.
+     */
+    public static NetworkEmulator start(NetworkSchedule schedule, CDPSession cdpSession) {
+        return new NetworkEmulator(schedule,
+                profile -> cdpSession.send("Network.emulateNetworkConditions", profile.toCdpParameters()));
+    }
+
+    /**
+     * Starts emulating the schedule on a Chrome driver.
+     *
+     * @param schedule The schedule.
+     * @param driver   The driver.
+     * @return The emulator.
+     */
+    public static NetworkEmulator start(NetworkSchedule schedule, ChromeDriver driver) {
+        return new NetworkEmulator(schedule, profile -> driver.setNetworkConditions(profile.toSeleniumConditions()));
+    }
+
+    /**
+     * Switches to the profile the schedule calls for now, if it has changed.
+     */
+    public void update() {
+        NetworkProfile profile = schedule.getProfileAt(Duration.ofNanos(System.nanoTime() - startNanos));
+
+        if (profile != currentProfile) {
+            log.debug("Switching the network to '{}'.", profile.getName());
+            applier.accept(profile);
+            currentProfile = profile;
+        }
+    }
+}
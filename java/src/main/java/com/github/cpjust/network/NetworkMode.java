@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Where the browsers get their network traffic from.  Chosen with the {@code network.mode} system property.
+ */
+public enum NetworkMode {
+    /** Requests go to the real site. */
+    LIVE,
+    /** Requests go to the real site and the traffic is saved to a HAR file per test. */
+    RECORD,
+    /** Requests are answered from the saved HAR files and anything not in them is aborted. */
+    REPLAY;
+
+    /**
+     * @return The mode set in the {@code network.mode} system property, or {@link #LIVE} if it isn't set.
+     */
+    public static NetworkMode fromSystemProperties() {
+        String mode = System.getProperty("network.mode", LIVE.name());
+        return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Gets the HAR file for a test.  The HAR directory is set with the {@code network.har.dir} system property and
+     * defaults to {@code src/test/resources/har} so the recordings can be checked in.  Each variant of a test (e.g.
+     * each network profile of a {@code @Factory}) gets a file of its own, so parallel instances don't overwrite each
+     * other's recordings.
+     *
+     * @param testClass The test class.
+     * @param testName  The test method name.
+     * @param variant   The variant of the test, or null if it only has one.
+     * @return The HAR file for the test.
+     */
+    public static Path getHarPath(Class<?> testClass, String testName, String variant) {
+        Path harDir = Paths.get(System.getProperty("network.har.dir", "src/test/resources/har"));
+        String fileName = variant == null ? testName : testName + "-" + variant.replaceAll("[^A-Za-z0-9._-]", "_");
+        return harDir.resolve(testClass.getSimpleName()).resolve(fileName + ".har");
+    }
+}
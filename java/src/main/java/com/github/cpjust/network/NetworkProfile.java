@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import com.google.gson.JsonObject;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.openqa.selenium.chromium.ChromiumNetworkConditions;
+
+import java.time.Duration;
+
+/**
+ * A named set of network conditions.  The CDP parameters and Selenium conditions are built once when the profile is
+ * created, so applying a profile never re-serializes anything.
+ */
+@Getter
+public class NetworkProfile {
+    private final String name;
+    /** Download throughput in kilobits per second, or -1 for no limit. */
+    private final int downloadKbps;
+    /** Upload throughput in kilobits per second, or -1 for no limit. */
+    private final int uploadKbps;
+    /** Extra round trip latency in milliseconds. */
+    private final int latencyMs;
+    private final boolean offline;
+    /** The percentage of packets to drop (Playwright only, since ChromeDriver has no setting for it). */
+    private final double packetLossPercent;
+
+    @Getter(AccessLevel.NONE)
+    private final JsonObject cdpParameters;
+    @Getter(AccessLevel.NONE)
+    private final ChromiumNetworkConditions seleniumConditions;
+
+    /**
+     * @param name              The profile name.
+     * @param downloadKbps      Download throughput in kilobits per second, or -1 for no limit.
+     * @param uploadKbps        Upload throughput in kilobits per second, or -1 for no limit.
+     * @param latencyMs         Extra round trip latency in milliseconds.
+     * @param offline           Whether the network is offline.
+     * @param packetLossPercent The percentage of packets to drop.
+     */
+    public NetworkProfile(String name, int downloadKbps, int uploadKbps, int latencyMs, boolean offline,
+                          double packetLossPercent) {
+        this.name = name;
+        this.downloadKbps = downloadKbps;
+        this.uploadKbps = uploadKbps;
+        this.latencyMs = latencyMs;
+        this.offline = offline;
+        this.packetLossPercent = packetLossPercent;
+
+        // CDP takes the throughput in bytes per second.
+        cdpParameters = new JsonObject();
+        cdpParameters.addProperty("offline", offline);
+        cdpParameters.addProperty("latency", latencyMs);
+        cdpParameters.addProperty("downloadThroughput", toBytesPerSecond(downloadKbps));
+        cdpParameters.addProperty("uploadThroughput", toBytesPerSecond(uploadKbps));
+
+        if (packetLossPercent > 0) {
+            cdpParameters.addProperty("packetLoss", packetLossPercent);
+        }
+
+        seleniumConditions = new ChromiumNetworkConditions();
+        seleniumConditions.setOffline(offline);
+        seleniumConditions.setLatency(Duration.ofMillis(latencyMs));
+        seleniumConditions.setDownloadThroughput(toBytesPerSecond(downloadKbps));
+        seleniumConditions.setUploadThroughput(toBytesPerSecond(uploadKbps));
+    }
+
+    /**
+     * @return The parameters for the CDP {@code Network.emulateNetworkConditions} command.  Must not be modified.
+     */
+    public JsonObject toCdpParameters() {
+        return cdpParameters;
+    }
+
+    /**
+     * @return The conditions for {@code ChromeDriver.setNetworkConditions()}.  Must not be modified.
+     */
+    public ChromiumNetworkConditions toSeleniumConditions() {
+        return seleniumConditions;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static int toBytesPerSecond(int kbps) {
+        return kbps < 0 ? -1 : kbps * 1000 / 8;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The built-in {@link NetworkProfile}s, and the system properties that choose between them.
+ * <p>
+ * {@code network.profile} sets the profile (or schedule, see {@link NetworkSchedule#parse(String)}) for the run, and
+ * {@code network.profiles} sets a comma separated matrix of them for tests that run once per profile.
+ */
+public class NetworkProfiles {
+    public static final NetworkProfile NO_THROTTLING = new NetworkProfile("none", -1, -1, 0, false, 0);
+    /** 80 kb/s down with 5 s of latency, which the tests have always used. */
+    public static final NetworkProfile SLOW_5S = new NetworkProfile("slow-5s", 80, -1, 5000, false, 0);
+    public static final NetworkProfile REGULAR_3G = new NetworkProfile("regular-3g", 750, 250, 100, false, 0);
+    public static final NetworkProfile GOOD_3G = new NetworkProfile("good-3g", 1500, 750, 40, false, 0);
+    public static final NetworkProfile REGULAR_4G = new NetworkProfile("4g", 4000, 3000, 20, false, 0);
+    public static final NetworkProfile FLAKY = new NetworkProfile("flaky", 1500, 750, 150, false, 5);
+    public static final NetworkProfile OFFLINE = new NetworkProfile("offline", 0, 0, 0, true, 0);
+
+    private static final Map<String, NetworkProfile> PROFILES = new LinkedHashMap<>();
+
+    static {
+        for (NetworkProfile profile : new NetworkProfile[] {NO_THROTTLING, SLOW_5S, REGULAR_3G, GOOD_3G, REGULAR_4G,
+                FLAKY, OFFLINE}) {
+            PROFILES.put(profile.getName(), profile);
+        }
+    }
+
+    private NetworkProfiles() {
+    }
+
+    /**
+     * @param name The profile name.
+     * @return The profile.
+     * @throws IllegalArgumentException If there's no profile with that name.
+     */
+    public static NetworkProfile get(String name) {
+        NetworkProfile profile = PROFILES.get(name.trim());
+
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown network profile '" + name + "'!  Known profiles: " + PROFILES.keySet());
+        }
+
+        return profile;
+    }
+
+    /**
+     * @return The names of all the built-in profiles.
+     */
+    public static List<String> getNames() {
+        return Collections.unmodifiableList(new ArrayList<>(PROFILES.keySet()));
+    }
+
+    /**
+     * @param defaultSchedule The schedule to use if {@code network.profile} isn't set.
+     * @return The schedule from the {@code network.profile} system property.
+     */
+    public static NetworkSchedule fromSystemProperties(String defaultSchedule) {
+        return NetworkSchedule.parse(System.getProperty("network.profile", defaultSchedule));
+    }
+
+    /**
+     * @param defaultSchedule The schedule to use if neither {@code network.profiles} nor {@code network.profile} is set.
+     * @return The schedules from the {@code network.profiles} system property, separated by semicolons or commas.
+     */
+    public static List<NetworkSchedule> getMatrix(String defaultSchedule) {
+        String matrix = System.getProperty("network.profiles", System.getProperty("network.profile", defaultSchedule));
+        List<NetworkSchedule> schedules = new ArrayList<>();
+
+        // Schedules contain commas themselves, so a matrix of schedules has to be separated with semicolons.
+        for (String schedule : matrix.split(matrix.contains(";") ? ";" : ",")) {
+            if (!schedule.trim().isEmpty()) {
+                schedules.add(NetworkSchedule.parse(schedule));
+            }
+        }
+
+        return schedules;
+    }
+}
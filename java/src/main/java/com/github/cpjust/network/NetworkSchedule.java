@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sequence of {@link NetworkProfile}s that loops over time, e.g. 10 s of 4G, 2 s offline, then 10 s of 3G.
+ * A schedule with one phase is just a fixed profile.
+ */
+public class NetworkSchedule {
+    @Getter
+    private final String name;
+    private final List<Phase> phases;
+    private final long cycleMillis;
+
+    private NetworkSchedule(String name, List<Phase> phases) {
+        this.name = name;
+        this.phases = phases;
+        long cycle = 0;
+
+        for (Phase phase : phases) {
+            cycle += phase.getDuration().toMillis();
+        }
+
+        this.cycleMillis = cycle;
+    }
+
+    /**
+     * @param profile The profile.
+     * @return A schedule that always uses the profile.
+     */
+    public static NetworkSchedule of(NetworkProfile profile) {
+        return new NetworkSchedule(profile.getName(), Collections.singletonList(new Phase(profile, Duration.ZERO)));
+    }
+
+    /**
+     * Parses a schedule such as {@code "4g:10s,offline:2s,regular-3g:10s"}, or a single profile name such as
+     * {@code "4g"}.  Durations are in seconds, or milliseconds with an {@code ms} suffix.
+     *
+     * @param schedule The schedule.
+     * @return The parsed schedule.
+     */
+    public static NetworkSchedule parse(String schedule) {
+        String[] phaseSpecs = schedule.trim().split(",");
+
+        if (phaseSpecs.length == 1 && !phaseSpecs[0].contains(":")) {
+            return of(NetworkProfiles.get(phaseSpecs[0]));
+        }
+
+        List<Phase> phases = new ArrayList<>();
+
+        for (String phaseSpec : phaseSpecs) {
+            String[] profileAndDuration = phaseSpec.trim().split(":");
+
+            if (profileAndDuration.length != 2) {
+                throw new IllegalArgumentException("Expected <profile>:<duration> but got '" + phaseSpec + "' in: " + schedule);
+            }
+
+            phases.add(new Phase(NetworkProfiles.get(profileAndDuration[0]), parseDuration(profileAndDuration[1].trim())));
+        }
+
+        return new NetworkSchedule(schedule.trim(), phases);
+    }
+
+    /**
+     * @param elapsed The time since the schedule started.
+     * @return The profile that applies at that time.
+     */
+    public NetworkProfile getProfileAt(Duration elapsed) {
+        if (phases.size() == 1 || cycleMillis == 0) {
+            return phases.get(0).getProfile();
+        }
+
+        long offset = elapsed.toMillis() % cycleMillis;
+
+        for (Phase phase : phases) {
+            offset -= phase.getDuration().toMillis();
+
+            if (offset < 0) {
+                return phase.getProfile();
+            }
+        }
+
+        return phases.get(phases.size() - 1).getProfile();
+    }
+
+    /**
+     * @return True if the profile changes over time.
+     */
+    public boolean isTimeVarying() {
+        return phases.size() > 1;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static Duration parseDuration(String duration) {
+        if (duration.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(duration.substring(0, duration.length() - 2)));
+        }
+
+        return Duration.ofSeconds(Long.parseLong(duration.endsWith("s") ? duration.substring(0, duration.length() - 1) : duration));
+    }
+
+    @Getter
+    private static class Phase {
+        private final NetworkProfile profile;
+        private final Duration duration;
+
+        Phase(NetworkProfile profile, Duration duration) {
+            this.profile = profile;
+            this.duration = duration;
+        }
+    }
+}
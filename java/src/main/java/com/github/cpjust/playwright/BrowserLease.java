@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import lombok.Getter;
+
+/**
+ * A browser borrowed from a {@link BrowserPool} together with a fresh context and page.
+ * Closing the lease closes the context and hands the browser back to the pool, or for a {@link ContextExecutor} context,
+ * leaves the shared browser open.
+ */
+public class BrowserLease implements AutoCloseable {
+    private final Browser browser;
+    private final Runnable release;
+    @Getter
+    private final BrowserContext browserContext;
+    @Getter
+    private final Page page;
+    @Getter
+    private final long waitMillis;
+    private boolean closed;
+
+    BrowserLease(BrowserPool pool, BrowserPool.PooledBrowser pooledBrowser, BrowserContext browserContext, Page page, long waitMillis) {
+        this(pooledBrowser.getBrowser(), browserContext, page, waitMillis, () -> pool.release(pooledBrowser));
+    }
+
+    BrowserLease(Browser browser, BrowserContext browserContext, Page page, long waitMillis, Runnable release) {
+        this.browser = browser;
+        this.browserContext = browserContext;
+        this.page = page;
+        this.waitMillis = waitMillis;
+        this.release = release;
+    }
+
+    /**
+     * @return The leased browser.  Only valid until this lease is closed.
+     */
+    public Browser getBrowser() {
+        return browser;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            browserContext.close();
+        } finally {
+            release.run();
+        }
+    }
+}
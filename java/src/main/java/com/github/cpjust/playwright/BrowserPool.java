@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.playwright;
+
+import com.github.cpjust.launch.LaunchTimes;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of warm Chromium browsers that can be shared by parallel test threads.
+ * <p>
+ * Playwright objects are not thread safe, so every pooled browser gets its own {@link Playwright} instance and is only
+ * ever used by the one thread that currently holds its {@link BrowserLease}.  Browsers are launched lazily up to the
+ * maximum size and are reused for every following lease, so only the context is created per test.
+ */
+@Slf4j
+public class BrowserPool implements AutoCloseable {
+    private final int maxSize;
+    private final BrowserType.LaunchOptions launchOptions;
+    private final BlockingQueue<PooledBrowser> idleBrowsers = new LinkedBlockingQueue<>();
+    private final List<PooledBrowser> allBrowsers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger browserCount = new AtomicInteger();
+
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong launchCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param maxSize       The maximum number of browsers to launch.
+     * @param launchOptions The options used to launch every browser in the pool.
+     */
+    public BrowserPool(int maxSize, BrowserType.LaunchOptions launchOptions) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1 but was " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.launchOptions = launchOptions;
+    }
+
+    /**
+     * Launches browsers up front so the first tests don't pay the startup cost.
+     *
+     * @param count The number of browsers to have ready (capped at the pool size).
+     */
+    public void warmUp(int count) {
+        while (browserCount.get() < Math.min(count, maxSize)) {
+            PooledBrowser pooledBrowser = tryLaunch();
+
+            if (pooledBrowser == null) {
+                break;
+            }
+
+            idleBrowsers.offer(pooledBrowser);
+        }
+    }
+
+    /**
+     * Borrows a browser from the pool and opens a new context and page in it, waiting for a browser to be released if
+     * the pool is exhausted.
+     *
+     * @param contextOptions The options for the new context.
+     * @param timeout        How long to wait for a free browser.
+     * @return The lease, which must be closed to return the browser to the pool.
+     */
+    public BrowserLease lease(Browser.NewContextOptions contextOptions, Duration timeout) {
+        long start = System.nanoTime();
+        PooledBrowser pooledBrowser = borrow(timeout);
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        try {
+            BrowserContext browserContext = pooledBrowser.getBrowser().newContext(contextOptions);
+            Page page = browserContext.newPage();
+            log.debug("Leased browser #{} on thread '{}' after waiting {} ms.", pooledBrowser.getId(),
+                    Thread.currentThread().getName(), waitMillis);
+            return new BrowserLease(this, pooledBrowser, browserContext, page, waitMillis);
+        } catch (RuntimeException e) {
+            release(pooledBrowser);
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a browser without opening a context, waiting for a browser to be released if the pool is exhausted.  The
+     * caller must only use the browser from one thread at a time and must {@link #release(PooledBrowser) release} it.
+     *
+     * @param timeout How long to wait for a free browser.
+     * @return The browser.
+     */
+    PooledBrowser borrow(Duration timeout) {
+        if (closed) {
+            throw new IllegalStateException("The browser pool has already been closed!");
+        }
+
+        long start = System.nanoTime();
+        PooledBrowser pooledBrowser = idleBrowsers.poll();
+
+        if (pooledBrowser == null) {
+            pooledBrowser = tryLaunch();
+        }
+
+        if (pooledBrowser == null) {
+            try {
+                pooledBrowser = idleBrowsers.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a pooled browser!", e);
+            }
+
+            if (pooledBrowser == null) {
+                throw new IllegalStateException("Timed out after " + timeout.toMillis() + " ms waiting for one of "
+                        + maxSize + " pooled browsers!");
+            }
+        }
+
+        recordWait(System.nanoTime() - start);
+        return pooledBrowser;
+    }
+
+    /**
+     * Returns a browser to the pool, or discards it if it has crashed or the pool has been closed.
+     */
+    void release(PooledBrowser pooledBrowser) {
+        if (closed || !pooledBrowser.getBrowser().isConnected()) {
+            log.debug("Discarding browser #{}.", pooledBrowser.getId());
+            allBrowsers.remove(pooledBrowser);
+            browserCount.decrementAndGet();
+            pooledBrowser.close();
+            return;
+        }
+
+        idleBrowsers.offer(pooledBrowser);
+    }
+
+    /**
+     * @return The number of leases handed out so far.
+     */
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * @return The average time a lease waited for a browser, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long leases = leaseCount.get();
+        return leases == 0 ? 0 : totalWaitNanos.get() / (leases * 1_000_000.0);
+    }
+
+    /**
+     * @return The longest time a lease waited for a browser, in milliseconds.
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * Closes every browser in the pool.  Leases that are still open will discard their browser when closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        log.info("Browser pool: {} leases, {} browsers launched (max {}), avg wait {} ms, max wait {} ms.",
+                getLeaseCount(), launchCount.get(), maxSize, String.format("%.1f", getAverageWaitMillis()),
+                getMaxWaitMillis());
+
+        for (PooledBrowser pooledBrowser : allBrowsers) {
+            pooledBrowser.close();
+        }
+
+        allBrowsers.clear();
+        idleBrowsers.clear();
+    }
+
+    private PooledBrowser tryLaunch() {
+        int count;
+
+        do {
+            count = browserCount.get();
+
+            if (count >= maxSize) {
+                return null;
+            }
+        } while (!browserCount.compareAndSet(count, count + 1));
+
+        Playwright playwright = null;
+
+        try {
+            long start = System.nanoTime();
+            playwright = Playwright.create();
+            Browser browser = playwright.chromium().launch(launchOptions);
+            LaunchTimes.getShared().record("playwright", (System.nanoTime() - start) / 1_000_000.0);
+            PooledBrowser pooledBrowser = new PooledBrowser(launchCount.incrementAndGet(), playwright, browser);
+            allBrowsers.add(pooledBrowser);
+            log.debug("Launched pooled browser #{}.", pooledBrowser.getId());
+            return pooledBrowser;
+        } catch (RuntimeException e) {
+            browserCount.decrementAndGet();
+
+            if (playwright != null) {
+                playwright.close();
+            }
+
+            throw e;
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        leaseCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * A browser and the Playwright instance that owns it.
+     */
+    @Getter
+    static class PooledBrowser {
+        private final long id;
+        private final Playwright playwright;
+        private final Browser browser;
+
+        PooledBrowser(long id, Playwright playwright, Browser browser) {
+            this.id = id;
+            this.playwright = playwright;
+            this.browser = browser;
+        }
+
+        void close() {
+            try {
+                browser.close();
+            } catch (RuntimeException e) {
+                log.warn("Failed to close pooled browser #{}.", id, e);
+            } finally {
+                playwright.close();
+            }
+        }
+    }
+}
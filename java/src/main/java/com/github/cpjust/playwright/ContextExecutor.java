@@ -0,0 +1,429 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.TimeoutError;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs browser tasks in many concurrent contexts that share a few browsers, limited by the number of open contexts
+ * rather than by threads or browsers.
+ * <p>
+ * Playwright objects are not thread safe, so each browser is borrowed from the pool by its own thread and only ever used
+ * from that thread.  Every browser hosts many contexts: a {@link Session} is one context, bound to the browser with the
+ * fewest open sessions, and its tasks run on that browser's thread.  A browser runs one task at a time, so the
+ * contexts on it take turns, e.g. while their users think.  So {@code maxContexts} is the number of concurrent
+ * sessions (hundreds are fine), and {@code browsers} is the number of Chromium processes and OS threads, which sets how
+ * many tasks run at the same moment.  Sessions that wait for a free context wait in a queue, not on a thread.
+ * <p>
+ * The code that drives the sessions, e.g. a test method or a virtual user, runs with {@link #orchestrate(Runnable)}.  It
+ * only hands short tasks to the browsers ({@link Session#call(Function)}) and polls from its own thread while it waits
+ * for the page ({@link Session#waitUntil(Predicate, Duration)}), so the contexts on a browser interleave instead of
+ * queueing behind each other's waits.  On Java 21 and later the orchestration runs on virtual threads, so hundreds of
+ * waiting sessions don't park hundreds of OS threads; on older JVMs it runs on a cached pool of daemon threads.
+ */
+@Slf4j
+public class ContextExecutor implements AutoCloseable {
+    private final BrowserPool pool;
+    private final Browser.NewContextOptions contextOptions;
+    private final Duration leaseTimeout;
+    @Getter
+    private final int maxContexts;
+    private final Semaphore contexts;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final List<BrowserThread> browserThreads = new ArrayList<>();
+    private final AtomicInteger unclosedSessions = new AtomicInteger();
+    private final ExecutorService orchestrator = newTaskExecutor();
+    private final long pollMillis = Long.getLong("playwright.context.poll.millis", 100);
+    private volatile boolean closed;
+
+    /**
+     * @param pool           The pool to borrow the browsers from.  It must have {@code browsers} free browsers.
+     * @param browsers       The number of browsers to share between the contexts.
+     * @param maxContexts    The maximum number of contexts open at once.
+     * @param contextOptions The options for each context.
+     * @param leaseTimeout   How long to wait for a pooled browser.
+     */
+    public ContextExecutor(BrowserPool pool, int browsers, int maxContexts, Browser.NewContextOptions contextOptions,
+                           Duration leaseTimeout) {
+        if (browsers < 1 || maxContexts < 1) {
+            throw new IllegalArgumentException("browsers and maxContexts must be at least 1 but were " + browsers
+                    + " and " + maxContexts);
+        }
+
+        this.pool = pool;
+        this.contextOptions = contextOptions;
+        this.leaseTimeout = leaseTimeout;
+        this.maxContexts = maxContexts;
+        this.contexts = new Semaphore(maxContexts);
+
+        for (int i = 1; i <= browsers; i++) {
+            browserThreads.add(new BrowserThread(i));
+        }
+    }
+
+    /**
+     * Opens a session as soon as one of the {@code maxContexts} contexts is free.  The session's context is created by
+     * its first task.  Callbacks on the returned future must not block, as they may run on a browser's thread.
+     *
+     * @return The session, which must be closed to free its context.
+     */
+    public CompletableFuture<Session> openSession() {
+        return openSession(contextOptions);
+    }
+
+    /**
+     * Opens a session whose contexts use other options than the executor's, e.g. a test's storage state.
+     *
+     * @param sessionContextOptions The options for the session's contexts.
+     * @return The session, which must be closed to free its context.
+     * @see #openSession()
+     */
+    public CompletableFuture<Session> openSession(Browser.NewContextOptions sessionContextOptions) {
+        if (closed) {
+            throw new IllegalStateException("The context executor has already been closed!");
+        }
+
+        CompletableFuture<Session> future = new CompletableFuture<>();
+        long start = System.nanoTime();
+        unclosedSessions.incrementAndGet();
+        pending.add(() -> future.complete(new Session(getLeastLoadedBrowser(), sessionContextOptions,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))));
+        dispatch();
+        return future;
+    }
+
+    /**
+     * Runs a task in its own context, which is closed when the task finishes.
+     *
+     * @param task The task.
+     * @param <T>  The type of the result.
+     * @return The task's result.
+     */
+    public <T> CompletableFuture<T> submit(Function<BrowserLease, T> task) {
+        return openSession().thenCompose(session -> session.submit(task).whenComplete((result, error) -> session.close()));
+    }
+
+    /**
+     * Runs orchestration code, e.g. a test method or a virtual user, on a virtual thread (on Java 21 and later).  The
+     * code may block, but should only use the browsers through a {@link Session}.
+     *
+     * @param flow The code.
+     * @return Completes when the code has finished.
+     */
+    public CompletableFuture<Void> orchestrate(Runnable flow) {
+        return CompletableFuture.runAsync(flow, orchestrator);
+    }
+
+    /**
+     * Waits for every session to be closed, then returns the browsers to the pool.
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (unclosedSessions) {
+                while (unclosedSessions.get() > 0) {
+                    unclosedSessions.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for {} sessions to close.", unclosedSessions.get());
+        }
+
+        closed = true;
+        orchestrator.shutdown();
+
+        for (BrowserThread browserThread : browserThreads) {
+            browserThread.close();
+        }
+    }
+
+    /**
+     * Opens queued sessions while there are free contexts.  Called after every open and after every close, so a session
+     * is never left queued while a context is free.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty() && contexts.tryAcquire()) {
+            Runnable open = pending.poll();
+
+            if (open == null) {
+                // Another thread took it; check the queue again after giving the permit back.
+                contexts.release();
+                continue;
+            }
+
+            open.run();
+        }
+    }
+
+    /**
+     * @return A virtual-thread-per-task executor on Java 21 and later, otherwise a cached pool of daemon threads.
+     */
+    static ExecutorService newTaskExecutor() {
+        try {
+            // Looked up by reflection because the project is compiled for Java 8.
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads aren't available on Java {}, so using platform threads.",
+                    System.getProperty("java.version"));
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "context-executor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private synchronized BrowserThread getLeastLoadedBrowser() {
+        BrowserThread browserThread = browserThreads.stream()
+                .min(Comparator.comparingInt(thread -> thread.sessions.get()))
+                .orElseThrow(IllegalStateException::new);
+        browserThread.sessions.incrementAndGet();
+        return browserThread;
+    }
+
+    private void sessionClosed(BrowserThread browserThread) {
+        browserThread.sessions.decrementAndGet();
+        contexts.release();
+
+        if (unclosedSessions.decrementAndGet() == 0) {
+            synchronized (unclosedSessions) {
+                unclosedSessions.notifyAll();
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * One context on a shared browser.  Its tasks run one at a time, in order, on the browser's thread.
+     */
+    public class Session implements AutoCloseable {
+        private final BrowserThread browserThread;
+        private final Browser.NewContextOptions sessionContextOptions;
+        private final long waitMillis;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Only used on the browser's thread.
+        private BrowserLease lease;
+
+        Session(BrowserThread browserThread, Browser.NewContextOptions sessionContextOptions, long waitMillis) {
+            this.browserThread = browserThread;
+            this.sessionContextOptions = sessionContextOptions;
+            this.waitMillis = waitMillis;
+        }
+
+        /**
+         * Queues a task on the session's context, creating the context first if needed.  The task must not close the
+         * lease or hand it to another thread.
+         *
+         * @param task The task.
+         * @param <T>  The type of the result.
+         * @return The task's result.
+         */
+        public <T> CompletableFuture<T> submit(Function<BrowserLease, T> task) {
+            if (closed.get()) {
+                throw new IllegalStateException("The session has already been closed!");
+            }
+
+            return browserThread.run(() -> task.apply(getLease()));
+        }
+
+        /**
+         * Runs a task on the session's context and waits for it, for orchestration code that blocks.  The task should
+         * be short, as the other contexts on the browser wait for it; use {@link #waitUntil} to wait for the page.
+         *
+         * @param task The task.
+         * @param <T>  The type of the result.
+         * @return The task's result.
+         */
+        public <T> T call(Function<BrowserLease, T> task) {
+            try {
+                return submit(task).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        /**
+         * Polls a condition every {@code playwright.context.poll.millis} (defaults to 100) until it's true, sleeping on
+         * the calling thread in between, so the browser can run other contexts' tasks while this one waits.
+         *
+         * @param condition The condition, checked on the session's context.  It must not wait itself.
+         * @param timeout   How long to wait.
+         * @throws TimeoutError If the condition isn't true in time.
+         */
+        public void waitUntil(Predicate<BrowserLease> condition, Duration timeout) {
+            long deadline = System.nanoTime() + timeout.toNanos();
+
+            while (!call(condition::test)) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new TimeoutError("Timeout " + timeout.toMillis() + "ms exceeded.");
+                }
+
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the page!", e);
+                }
+            }
+        }
+
+        /**
+         * Closes the current context, so the next task starts in a fresh one, like a new visitor.
+         */
+        public void renew() {
+            browserThread.run(this::closeLease);
+        }
+
+        /**
+         * Closes the context after the queued tasks have run, and frees it for the next session.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                browserThread.run(this::closeLease).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to close a context on browser #{}.", browserThread.id, error);
+                    }
+
+                    sessionClosed(browserThread);
+                });
+            }
+        }
+
+        private BrowserLease getLease() {
+            if (lease == null || lease.isClosed()) {
+                Browser browser = browserThread.getBrowser();
+                BrowserContext browserContext = browser.newContext(sessionContextOptions);
+
+                try {
+                    Page page = browserContext.newPage();
+                    lease = new BrowserLease(browser, browserContext, page, waitMillis, () -> { });
+                } catch (RuntimeException e) {
+                    browserContext.close();
+                    throw e;
+                }
+            }
+
+            return lease;
+        }
+
+        private Void closeLease() {
+            if (lease != null) {
+                lease.close();
+                lease = null;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * A browser borrowed from the pool and the one thread that uses it.
+     */
+    private class BrowserThread {
+        private final int id;
+        private final ExecutorService thread;
+        private final AtomicInteger sessions = new AtomicInteger();
+        // Only used on the thread.
+        private BrowserPool.PooledBrowser pooledBrowser;
+
+        BrowserThread(int id) {
+            this.id = id;
+            this.thread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "context-executor-browser-" + id);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        <T> CompletableFuture<T> run(Supplier<T> work) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            thread.execute(() -> {
+                try {
+                    future.complete(work.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        }
+
+        /**
+         * Only called on the thread.  The browser is borrowed lazily, so that an idle executor doesn't hold browsers
+         * other tests could use.
+         */
+        Browser getBrowser() {
+            if (pooledBrowser == null) {
+                pooledBrowser = pool.borrow(leaseTimeout);
+            }
+
+            return pooledBrowser.getBrowser();
+        }
+
+        void close() {
+            thread.execute(() -> {
+                if (pooledBrowser != null) {
+                    pool.release(pooledBrowser);
+                    pooledBrowser = null;
+                }
+            });
+            thread.shutdown();
+
+            try {
+                if (!thread.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("Browser #{} of the context executor didn't stop within a minute.", id);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
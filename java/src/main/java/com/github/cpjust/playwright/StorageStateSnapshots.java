@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.playwright;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * A file cache of Playwright storage states (cookies and local storage), so an expensive setup such as logging in or
+ * accepting cookies only has to run once and later contexts can start from the saved state.
+ * <p>
+ * Each snapshot is stored under a fingerprint of everything it depends on (e.g. the locator file and the URL), so
+ * changing any of them automatically invalidates the old snapshot.  Snapshots also expire after a maximum age since
+ * the cookies in them will eventually expire on the server.
+ */
+@Slf4j
+public class StorageStateSnapshots {
+    private final Path directory;
+    private final Duration maxAge;
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory The directory to store the snapshot files in.
+     * @param maxAge    How long a snapshot may be reused before the setup is run again.
+     */
+    public StorageStateSnapshots(Path directory, Duration maxAge) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Gets the path of a valid snapshot, capturing a new one if there isn't one yet.
+     *
+     * @param name        A readable name for the snapshot.
+     * @param fingerprint The fingerprint of everything the snapshot depends on.  See {@link #fingerprint(String...)}.
+     * @param capture     Runs the setup and saves the storage state to the given path.
+     * @return The path of the storage state file.
+     */
+    public Path getOrCapture(String name, String fingerprint, Consumer<Path> capture) {
+        Path snapshot = directory.resolve(name + "-" + fingerprint + ".json");
+        Object lock = locks.computeIfAbsent(snapshot.toString(), key -> new Object());
+
+        synchronized (lock) {
+            if (isValid(snapshot)) {
+                return snapshot;
+            }
+
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create the storage state directory: " + directory, e);
+            }
+
+            long start = System.currentTimeMillis();
+            capture.accept(snapshot);
+
+            if (!Files.isRegularFile(snapshot)) {
+                throw new IllegalStateException("The setup for '" + name + "' didn't save a storage state to: " + snapshot);
+            }
+
+            log.info("Captured storage state '{}' in {} ms.", name, System.currentTimeMillis() - start);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Builds a fingerprint from the given strings.
+     *
+     * @param parts The values the snapshot depends on.
+     * @return A hex SHA-256 hash of the parts.
+     */
+    public static String fingerprint(String... parts) {
+        MessageDigest digest = newDigest();
+
+        for (String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Fingerprints the contents of a classpath resource, e.g. a locator properties file.
+     *
+     * @param resourceName The name of the resource.
+     * @return A hex SHA-256 hash of the resource contents.
+     * @throws IOException If the resource can't be read.
+     */
+    public static String fingerprintResource(String resourceName) throws IOException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        MessageDigest digest = newDigest();
+
+        try (InputStream resourceStream = loader.getResourceAsStream(resourceName)) {
+            if (resourceStream == null) {
+                throw new IOException("Resource not found: " + resourceName);
+            }
+
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = resourceStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    private boolean isValid(Path snapshot) {
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+
+        try {
+            FileTime modified = Files.getLastModifiedTime(snapshot);
+            return System.currentTimeMillis() - modified.toMillis() < maxAge.toMillis();
+        } catch (IOException e) {
+            log.warn("Failed to read the age of {}, so it will be captured again.", snapshot, e);
+            return false;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported!", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps running duration percentiles and failure rates per test while the suite runs, in constant memory per test, and
+ * decides when the run should be aborted because too many recent tests failed.
+ * <p>
+ * The abort is enabled with the {@code results.abort.failure.rate} system property, e.g. 0.5 to stop once half of the
+ * last {@code results.abort.window} (defaults to 50) finished tests failed.
+ */
+@Slf4j
+public class LiveAggregator {
+    private static final LiveAggregator SHARED = new LiveAggregator(
+            Double.parseDouble(System.getProperty("results.abort.failure.rate", "0")),
+            Integer.getInteger("results.abort.window", 50));
+
+    private final double abortFailureRate;
+    private final boolean[] window;
+    private final Map<String, Stats> statsByTest = new ConcurrentHashMap<>();
+    private final Stats overall = new Stats();
+    private int windowIndex;
+    private int windowSize;
+    private int windowFailures;
+    private volatile String abortReason;
+
+    /**
+     * @param abortFailureRate The failure rate over the window at which the run is aborted, or 0 to never abort.
+     * @param windowSize       The number of most recent tests the failure rate is measured over.
+     */
+    public LiveAggregator(double abortFailureRate, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1 but was " + windowSize);
+        }
+
+        this.abortFailureRate = abortFailureRate;
+        this.window = new boolean[windowSize];
+    }
+
+    /**
+     * @return The aggregator configured by the {@code results.abort.*} system properties.
+     */
+    public static LiveAggregator getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @param test The test, including anything that makes a run of it distinct, e.g. the network profile.
+     * @return The attempt number of the test's next run.  Skipped runs don't count as attempts.
+     */
+    public int getNextAttempt(String test) {
+        Stats stats = statsByTest.get(test);
+        return stats == null ? 1 : (int) stats.getRuns() + 1;
+    }
+
+    /**
+     * Records a finished test.  Skipped tests are counted separately and don't affect the runs, durations or failure
+     * rates.
+     *
+     * @param test       The test.
+     * @param durationMs How long it took.
+     * @param status     "passed", "failed" or "skipped".
+     */
+    public void record(String test, double durationMs, String status) {
+        boolean skipped = "skipped".equals(status);
+        boolean failed = "failed".equals(status);
+        statsByTest.computeIfAbsent(test, key -> new Stats()).record(durationMs, failed, skipped);
+        overall.record(durationMs, failed, skipped);
+
+        if (!skipped) {
+            updateWindow(failed);
+        }
+    }
+
+    /**
+     * @return True if the failure rate has spiked and the remaining tests should be skipped.
+     */
+    public boolean isAborted() {
+        return abortReason != null;
+    }
+
+    /**
+     * @return Why the run was aborted, or null if it wasn't.
+     */
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    /**
+     * @return The failure rate of the most recent tests.
+     */
+    public synchronized double getWindowFailureRate() {
+        return windowSize == 0 ? 0 : (double) windowFailures / windowSize;
+    }
+
+    /**
+     * @return A snapshot of every test so far, for the stream.
+     */
+    public ResultRecord snapshot() {
+        synchronized (overall) {
+            return ResultRecord.builder()
+                    .type(ResultRecord.AGGREGATE)
+                    .time(System.currentTimeMillis())
+                    .tests(overall.getRuns())
+                    .failures(overall.getFailures())
+                    .windowFailureRate(getWindowFailureRate())
+                    .p50Ms(overall.p50.get())
+                    .p90Ms(overall.p90.get())
+                    .p99Ms(overall.p99.get())
+                    .build();
+        }
+    }
+
+    /**
+     * Logs the tests that failed most often and the overall percentiles.
+     *
+     * @param limit The number of tests to log.
+     */
+    public void logSummary(int limit) {
+        if (overall.getRuns() == 0) {
+            return;
+        }
+
+        synchronized (overall) {
+            log.info("{} tests, {} failed, {} skipped; p50 {} ms, p90 {} ms, p99 {} ms", overall.getRuns(),
+                    overall.getFailures(), overall.getSkipped(), String.format("%.0f", overall.p50.get()), String.format("%.0f", overall.p90.get()),
+                    String.format("%.0f", overall.p99.get()));
+        }
+
+        statsByTest.entrySet().stream()
+                .filter(entry -> entry.getValue().getFailures() > 0)
+                .sorted(Comparator.comparingDouble((Map.Entry<String, Stats> entry) ->
+                        entry.getValue().getFailureRate()).reversed())
+                .limit(limit)
+                .forEach(entry -> log.info("  {}: failed {} of {} runs", entry.getKey(),
+                        entry.getValue().getFailures(), entry.getValue().getRuns()));
+    }
+
+    private synchronized void updateWindow(boolean failed) {
+        if (windowSize == window.length && window[windowIndex]) {
+            windowFailures--;
+        }
+
+        window[windowIndex] = failed;
+        windowIndex = (windowIndex + 1) % window.length;
+        windowSize = Math.min(windowSize + 1, window.length);
+
+        if (failed) {
+            windowFailures++;
+        }
+
+        if (abortFailureRate > 0 && abortReason == null && windowSize == window.length
+                && getWindowFailureRate() >= abortFailureRate) {
+            abortReason = String.format("%d of the last %d tests failed (abort at %.0f%%)", windowFailures,
+                    windowSize, abortFailureRate * 100);
+            log.error("Aborting the run: {}", abortReason);
+        }
+    }
+
+    /**
+     * The runs, failures and duration percentiles of one test, or of all of them.  Only the runs that executed count as
+     * runs; skipped ones are counted on their own.
+     */
+    private static class Stats {
+        private final P2Quantile p50 = new P2Quantile(0.5);
+        private final P2Quantile p90 = new P2Quantile(0.9);
+        private final P2Quantile p99 = new P2Quantile(0.99);
+        private long runs;
+        private long failures;
+        private long skipped;
+
+        synchronized void record(double durationMs, boolean failed, boolean skipped) {
+            if (skipped) {
+                this.skipped++;
+                return;
+            }
+
+            runs++;
+
+            if (failed) {
+                failures++;
+            }
+
+            p50.add(durationMs);
+            p90.add(durationMs);
+            p99.add(durationMs);
+        }
+
+        synchronized long getRuns() {
+            return runs;
+        }
+
+        synchronized long getFailures() {
+            return failures;
+        }
+
+        synchronized long getSkipped() {
+            return skipped;
+        }
+
+        synchronized double getFailureRate() {
+            return runs == 0 ? 0 : (double) failures / runs;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a quantile of a stream in constant memory with the P-squared algorithm (Jain and Chlamtac, 1985), which keeps
+ * five markers whose heights are adjusted with a piecewise-parabolic fit as values arrive.
+ */
+public class P2Quantile {
+    private final double quantile;
+    private final double[] heights = new double[5];
+    private final int[] positions = new int[5];
+    private final double[] desiredPositions = new double[5];
+    private final double[] increments;
+    private long count;
+
+    /**
+     * @param quantile The quantile to estimate, e.g. 0.99.
+     */
+    public P2Quantile(double quantile) {
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1 but was " + quantile);
+        }
+
+        this.quantile = quantile;
+        this.increments = new double[] {0, quantile / 2, quantile, (1 + quantile) / 2, 1};
+    }
+
+    /**
+     * @param value The next value.
+     */
+    public void add(double value) {
+        if (count < 5) {
+            heights[(int) count++] = value;
+
+            if (count == 5) {
+                Arrays.sort(heights);
+
+                for (int i = 0; i < 5; i++) {
+                    positions[i] = i + 1;
+                }
+
+                desiredPositions[0] = 1;
+                desiredPositions[1] = 1 + 2 * quantile;
+                desiredPositions[2] = 1 + 4 * quantile;
+                desiredPositions[3] = 3 + 2 * quantile;
+                desiredPositions[4] = 5;
+            }
+
+            return;
+        }
+
+        count++;
+        int cell;
+
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[4]) {
+            heights[4] = value;
+            cell = 3;
+        } else {
+            cell = 0;
+
+            while (value >= heights[cell + 1]) {
+                cell++;
+            }
+        }
+
+        for (int i = cell + 1; i < 5; i++) {
+            positions[i]++;
+        }
+
+        for (int i = 0; i < 5; i++) {
+            desiredPositions[i] += increments[i];
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            double offset = desiredPositions[i] - positions[i];
+
+            if ((offset >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (offset <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int direction = offset > 0 ? 1 : -1;
+                double height = parabolic(i, direction);
+
+                if (heights[i - 1] < height && height < heights[i + 1]) {
+                    heights[i] = height;
+                } else {
+                    heights[i] += direction * (heights[i + direction] - heights[i])
+                            / (positions[i + direction] - positions[i]);
+                }
+
+                positions[i] += direction;
+            }
+        }
+    }
+
+    /**
+     * @return The estimated quantile, exact (the nearest rank) while there are five values or fewer, or NaN if there are
+     * none.
+     */
+    public double get() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        // The markers only track the quantile once a sixth value has moved them, so until then use the values.
+        if (count <= 5) {
+            double[] values = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(values);
+            return values[(int) Math.min(count - 1, Math.round(quantile * (count - 1)))];
+        }
+
+        return heights[2];
+    }
+
+    /**
+     * @return The number of values added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private double parabolic(int i, int direction) {
+        return heights[i] + (double) direction / (positions[i + 1] - positions[i - 1])
+                * ((positions[i] - positions[i - 1] + direction) * (heights[i + 1] - heights[i])
+                / (positions[i + 1] - positions[i])
+                + (positions[i + 1] - positions[i] - direction) * (heights[i] - heights[i - 1])
+                / (positions[i] - positions[i - 1]));
+    }
+}
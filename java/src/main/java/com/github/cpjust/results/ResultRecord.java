@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One line of the {@link ResultStream}: a step of a test, a finished test, a browser launch, or a snapshot of the
+ * {@link LiveAggregator}.  Fields that don't apply to the type are null and left out of the JSON.
+ */
+@Value
+@Builder
+public class ResultRecord {
+    public static final String STEP = "step";
+    public static final String TEST = "test";
+    public static final String AGGREGATE = "aggregate";
+    public static final String LAUNCH = "launch";
+
+    /** {@link #STEP}, {@link #TEST}, {@link #AGGREGATE} or {@link #LAUNCH}. */
+    String type;
+    /** When the step or test started, or when the snapshot was taken, in epoch milliseconds. */
+    long time;
+    /** The test, e.g. "SimplePlaywrightTest.checkProductInfo_verifyTitleAndPrice". */
+    String test;
+    String step;
+    /** "playwright" or "selenium". */
+    String engine;
+    /** The network profile the test ran with. */
+    String network;
+    /** 1 for the first run of the test with this engine and network profile, 2 for its first retry, etc. */
+    Integer attempt;
+    Double durationMs;
+    /** The bytes the page transferred during the test. */
+    Long bytes;
+    /** "passed", "failed" or "skipped". */
+    String status;
+    String error;
+
+    /** The launch fields: the {@code launch.profile}, and whether it was the engine's first launch in the JVM. */
+    String profile;
+    Boolean cold;
+
+    /** The aggregate fields. */
+    Long tests;
+    Long failures;
+    Double windowFailureRate;
+    Double p50Ms;
+    Double p90Ms;
+    Double p99Ms;
+}
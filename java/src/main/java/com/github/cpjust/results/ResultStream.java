@@ -0,0 +1,345 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import com.github.cpjust.metrics.StepTimer;
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams one newline delimited JSON {@link ResultRecord} per test step, per test and per browser launch while the
+ * suite runs, so dashboards can follow a long run without waiting for the end-of-run reports.  Every finished test is
+ * also fed to the {@link LiveAggregator}, whose snapshot is streamed every {@code results.aggregate.every} tests
+ * (defaults to 100).
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code results.stream}: {@code off} (default), {@code file} or {@code socket}.</li>
+ *     <li>{@code results.file}: the file to write (defaults to {@code target/results/results.ndjson}).  When it
+ *     reaches {@code results.file.max.mb} (defaults to 100) it's renamed to {@code .1}, the older files are shifted up
+ *     and the oldest beyond {@code results.file.keep} (defaults to 5) is deleted.</li>
+ *     <li>{@code results.socket}: the {@code host:port} to stream to, e.g. a log shipper.  A lost connection is retried
+ *     every 5 seconds, and the records in between are dropped.</li>
+ * </ul>
+ * Records are written on a background thread; if it falls behind, new records are dropped rather than slowing the tests
+ * down.
+ */
+@Slf4j
+public class ResultStream {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final long RECONNECT_MS = 5_000;
+    /** Queued by {@link #close()} to stop the writer, and compared by identity. */
+    private static final String END = new String("end");
+    private static final Gson GSON = new Gson();
+    private static final ResultStream SHARED = new ResultStream(System.getProperty("results.stream", "off"),
+            LiveAggregator.getShared());
+
+    private final String mode;
+    private final LiveAggregator aggregator;
+    private final int aggregateEvery = Integer.getInteger("results.aggregate.every", 100);
+    private final AtomicLong testCount = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+
+    private final Path file = Paths.get(System.getProperty("results.file", "target/results/results.ndjson"));
+    private final long maxFileBytes = Long.getLong("results.file.max.mb", 100) * 1024 * 1024;
+    private final int keepFiles = Integer.getInteger("results.file.keep", 5);
+    private Writer writer;
+    private long writtenBytes;
+    private long lastConnectAttempt;
+
+    /**
+     * @param mode       {@code off}, {@code file} or {@code socket}.
+     * @param aggregator The aggregator every finished test is fed to.
+     */
+    public ResultStream(String mode, LiveAggregator aggregator) {
+        this.mode = mode.toLowerCase(Locale.ROOT);
+        this.aggregator = aggregator;
+
+        if (!"off".equals(this.mode) && !"file".equals(this.mode) && !"socket".equals(this.mode)) {
+            throw new IllegalArgumentException("Unknown results.stream '" + mode + "'!  Expected off, file or socket.");
+        }
+
+        if ("off".equals(this.mode)) {
+            writerThread = null;
+            return;
+        }
+
+        writerThread = new Thread(this::writeLoop, "result-stream");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "result-stream-shutdown"));
+    }
+
+    /**
+     * @return The stream configured by the {@code results.*} system properties.
+     */
+    public static ResultStream getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @return True if records are streamed anywhere.
+     */
+    public boolean isEnabled() {
+        return writerThread != null;
+    }
+
+    /**
+     * Streams the steps of a finished test and the test itself, and feeds it to the aggregator.
+     *
+     * @param test        The test, e.g. "SimplePlaywrightTest.checkProductInfo_verifyTitleAndPrice".
+     * @param engine      "playwright" or "selenium".
+     * @param network     The network profile, or null if the network wasn't emulated.
+     * @param steps       The test's steps.
+     * @param startMs     When the test started, in epoch milliseconds.
+     * @param durationMs  How long the test took.
+     * @param status      "passed", "failed" or "skipped".
+     * @param error       Why the test failed, or null.
+     * @param bytes       The bytes the page transferred, or null if they weren't measured.
+     */
+    public void recordTest(String test, String engine, String network, List<StepTimer.Timing> steps, long startMs,
+                           double durationMs, String status, Throwable error, Long bytes) {
+        // Every network profile runs each test, so the runs are only comparable within one.
+        String key = network == null ? test : test + " [" + network + "]";
+        int attempt = aggregator.getNextAttempt(key);
+        aggregator.record(key, durationMs, status);
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        for (StepTimer.Timing step : steps) {
+            emit(ResultRecord.builder()
+                    .type(ResultRecord.STEP)
+                    .time(step.getStartEpochMs())
+                    .test(test)
+                    .step(step.getName())
+                    .engine(engine)
+                    .network(network)
+                    .attempt(attempt)
+                    .durationMs(step.getDurationMs())
+                    .status(step.isFailed() ? "failed" : "passed")
+                    .build());
+        }
+
+        emit(ResultRecord.builder()
+                .type(ResultRecord.TEST)
+                .time(startMs)
+                .test(test)
+                .engine(engine)
+                .network(network)
+                .attempt(attempt)
+                .durationMs(durationMs)
+                .bytes(bytes)
+                .status(status)
+                .error(error == null ? null : String.valueOf(error.getMessage()))
+                .build());
+
+        if (testCount.incrementAndGet() % aggregateEvery == 0) {
+            emit(aggregator.snapshot());
+        }
+    }
+
+    /**
+     * Streams a browser launch.
+     *
+     * @param engine     "playwright" or "selenium".
+     * @param profile    The launch profile.
+     * @param cold       True if it was the engine's first launch in the JVM.
+     * @param durationMs How long the launch took.
+     */
+    public void recordLaunch(String engine, String profile, boolean cold, double durationMs) {
+        emit(ResultRecord.builder()
+                .type(ResultRecord.LAUNCH)
+                .time(System.currentTimeMillis())
+                .engine(engine)
+                .profile(profile)
+                .cold(cold)
+                .durationMs(durationMs)
+                .build());
+    }
+
+    /**
+     * Queues a record for writing.
+     *
+     * @param record The record.
+     */
+    public void emit(ResultRecord record) {
+        if (isEnabled() && !queue.offer(GSON.toJson(record))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Streams a final aggregate snapshot and waits for the queued records to be written.
+     */
+    public void close() {
+        if (!isEnabled() || !writerThread.isAlive()) {
+            return;
+        }
+
+        emit(aggregator.snapshot());
+
+        try {
+            queue.put(END);
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (dropped.get() > 0) {
+            log.warn("Dropped {} result records because the stream fell behind or was disconnected.", dropped.get());
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                // Flush whenever the queue runs dry, so readers see the records as soon as the tests are idle.
+                String line = queue.poll();
+
+                if (line == null) {
+                    flush();
+                    line = queue.take();
+                }
+
+                if (line == END) {
+                    break;
+                }
+
+                write(line);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeWriter();
+        }
+    }
+
+    private void write(String line) {
+        try {
+            if (writer == null && !open()) {
+                dropped.incrementAndGet();
+                return;
+            }
+
+            writer.write(line);
+            writer.write('\n');
+            writtenBytes += line.length() + 1;
+
+            if ("file".equals(mode) && writtenBytes >= maxFileBytes) {
+                closeWriter();
+                rotate();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write to the result stream.", e);
+            dropped.incrementAndGet();
+            closeWriter();
+        }
+    }
+
+    private boolean open() throws IOException {
+        if ("file".equals(mode)) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            writtenBytes = Files.size(file);
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - lastConnectAttempt < RECONNECT_MS) {
+            return false;
+        }
+
+        lastConnectAttempt = now;
+        String address = System.getProperty("results.socket", "localhost:5170");
+        int colon = address.lastIndexOf(':');
+
+        try {
+            @SuppressWarnings("resource")
+            Socket socket = new Socket(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to connect the result stream to {}: {}", address, e.toString());
+            return false;
+        }
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "." + keepFiles));
+
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            Path older = file.resolveSibling(file.getFileName() + "." + i);
+
+            if (Files.exists(older)) {
+                Files.move(older, file.resolveSibling(file.getFileName() + "." + (i + 1)),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void flush() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("Failed to flush the result stream.", e);
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.debug("Failed to close the result stream.", e);
+        }
+
+        writer = null;
+    }
+}
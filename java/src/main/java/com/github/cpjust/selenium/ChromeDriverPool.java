@@ -0,0 +1,345 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.selenium;
+
+import com.github.cpjust.launch.LaunchTimes;
+import com.github.cpjust.launch.UserDataDirs;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of ChromeDriver sessions over one long-lived {@link SharedChromeDriverService}.
+ * <p>
+ * Sessions are started lazily up to the maximum size.  When a lease is closed, the session's cookies and storage are
+ * cleared and its tabs are replaced with a new one, instead of starting a new Chrome.  A session that fails its health
+ * check, can't be reset, or has been used {@code maxUses} times is quit and replaced.
+ * <p>
+ * Given {@link UserDataDirs}, every session keeps a user data directory of its own, which its replacement reuses.
+ */
+@Slf4j
+public class ChromeDriverPool implements AutoCloseable {
+    private final int maxSize;
+    private final int maxUses;
+    private final SharedChromeDriverService service;
+    private final ChromeOptions options;
+    private final UserDataDirs userDataDirs;
+    private final BlockingQueue<PooledDriver> idleDrivers = new LinkedBlockingQueue<>();
+    private final List<PooledDriver> allDrivers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger driverCount = new AtomicInteger();
+
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong startCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param maxSize The maximum number of sessions to start.
+     * @param maxUses The number of leases after which a session is replaced.
+     * @param service The driver server, which the pool shuts down when it's closed.
+     * @param options The options used to start every session.
+     */
+    public ChromeDriverPool(int maxSize, int maxUses, SharedChromeDriverService service, ChromeOptions options) {
+        this(maxSize, maxUses, service, options, null);
+    }
+
+    /**
+     * @param maxSize      The maximum number of sessions to start.
+     * @param maxUses      The number of leases after which a session is replaced.
+     * @param service      The driver server, which the pool shuts down when it's closed.
+     * @param options      The options used to start every session.
+     * @param userDataDirs The user data directories of the sessions, or null for a new temporary one per session.
+     */
+    public ChromeDriverPool(int maxSize, int maxUses, SharedChromeDriverService service, ChromeOptions options,
+                            UserDataDirs userDataDirs) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1 but was " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.maxUses = maxUses;
+        this.service = service;
+        this.options = options;
+        this.userDataDirs = userDataDirs;
+    }
+
+    /**
+     * Borrows a session from the pool, waiting for one to be released if the pool is exhausted.
+     *
+     * @param timeout How long to wait for a free session.
+     * @return The lease, which must be closed to return the session to the pool.
+     */
+    public DriverLease lease(Duration timeout) {
+        if (closed) {
+            throw new IllegalStateException("The driver pool has already been closed!");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+
+        while (true) {
+            PooledDriver pooledDriver = idleDrivers.poll();
+
+            if (pooledDriver == null) {
+                pooledDriver = tryStart();
+            }
+
+            if (pooledDriver == null) {
+                try {
+                    pooledDriver = idleDrivers.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a pooled driver!", e);
+                }
+
+                if (pooledDriver == null) {
+                    throw new IllegalStateException("Timed out after " + timeout.toMillis() + " ms waiting for one of "
+                            + maxSize + " pooled drivers!");
+                }
+            }
+
+            if (!pooledDriver.isHealthy()) {
+                evict(pooledDriver, "it failed the health check");
+                continue;
+            }
+
+            long waitNanos = System.nanoTime() - start;
+            recordWait(waitNanos);
+            pooledDriver.uses++;
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+            log.debug("Leased driver #{} on thread '{}' after waiting {} ms.", pooledDriver.getId(),
+                    Thread.currentThread().getName(), waitMillis);
+            return new DriverLease(this, pooledDriver, waitMillis);
+        }
+    }
+
+    /**
+     * Resets a session and returns it to the pool, or quits it if it can't be reused.
+     */
+    void release(PooledDriver pooledDriver) {
+        if (closed) {
+            evict(pooledDriver, "the pool is closed");
+            return;
+        }
+
+        if (pooledDriver.uses >= maxUses) {
+            evict(pooledDriver, "it has been used " + pooledDriver.uses + " times");
+            return;
+        }
+
+        try {
+            pooledDriver.reset();
+        } catch (RuntimeException e) {
+            log.debug("Failed to reset driver #{}.", pooledDriver.getId(), e);
+            evict(pooledDriver, "it couldn't be reset");
+            return;
+        }
+
+        idleDrivers.offer(pooledDriver);
+    }
+
+    /**
+     * @return The number of leases handed out so far.
+     */
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * @return The average time a lease waited for a session, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long leases = leaseCount.get();
+        return leases == 0 ? 0 : totalWaitNanos.get() / (leases * 1_000_000.0);
+    }
+
+    /**
+     * @return The longest time a lease waited for a session, in milliseconds.
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * Quits every session in the pool and stops the driver server.  Leases that are still open will quit their session
+     * when closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        log.info("Driver pool: {} leases, {} sessions started (max {}), {} evicted, avg wait {} ms, max wait {} ms.",
+                getLeaseCount(), startCount.get(), maxSize, evictionCount.get(),
+                String.format("%.1f", getAverageWaitMillis()), getMaxWaitMillis());
+
+        for (PooledDriver pooledDriver : allDrivers) {
+            quit(pooledDriver);
+        }
+
+        allDrivers.clear();
+        idleDrivers.clear();
+        service.shutdown();
+    }
+
+    private PooledDriver tryStart() {
+        int count;
+
+        do {
+            count = driverCount.get();
+
+            if (count >= maxSize) {
+                return null;
+            }
+        } while (!driverCount.compareAndSet(count, count + 1));
+
+        Path userDataDir = null;
+
+        try {
+            ChromeOptions sessionOptions = options;
+
+            if (userDataDirs != null) {
+                userDataDir = userDataDirs.acquire();
+                sessionOptions = new ChromeOptions().merge(options);
+                sessionOptions.addArguments("--user-data-dir=" + userDataDir);
+            }
+
+            long start = System.nanoTime();
+            ChromeDriver driver = new ChromeDriver(service, sessionOptions);
+            LaunchTimes.getShared().record("selenium", (System.nanoTime() - start) / 1_000_000.0);
+
+            PooledDriver pooledDriver = new PooledDriver(startCount.incrementAndGet(), driver, userDataDir);
+            allDrivers.add(pooledDriver);
+            log.debug("Started pooled driver #{}.", pooledDriver.getId());
+            return pooledDriver;
+        } catch (RuntimeException e) {
+            driverCount.decrementAndGet();
+
+            if (userDataDir != null) {
+                userDataDirs.release(userDataDir);
+            }
+
+            throw e;
+        }
+    }
+
+    private void evict(PooledDriver pooledDriver, String reason) {
+        log.debug("Evicting driver #{} because {}.", pooledDriver.getId(), reason);
+        evictionCount.incrementAndGet();
+        allDrivers.remove(pooledDriver);
+        driverCount.decrementAndGet();
+        quit(pooledDriver);
+    }
+
+    private void quit(PooledDriver pooledDriver) {
+        pooledDriver.quit();
+
+        // Chrome only unlocks its user data directory once it has exited.
+        if (pooledDriver.getUserDataDir() != null) {
+            userDataDirs.release(pooledDriver.getUserDataDir());
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        leaseCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * A ChromeDriver session, its user data directory and how many times it has been leased.
+     */
+    @Getter
+    static class PooledDriver {
+        private final long id;
+        private final ChromeDriver driver;
+        private final Path userDataDir;
+        private int uses;
+
+        PooledDriver(long id, ChromeDriver driver, Path userDataDir) {
+            this.id = id;
+            this.driver = driver;
+            this.userDataDir = userDataDir;
+        }
+
+        boolean isHealthy() {
+            try {
+                return !driver.getWindowHandles().isEmpty();
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Clears everything a test could have left behind, then replaces all the tabs with a new blank one.
+         */
+        void reset() {
+            Object origin = ((JavascriptExecutor) driver).executeScript("return window.location.origin;");
+            driver.executeCdpCommand("Network.clearBrowserCookies", new HashMap<>());
+
+            if (origin instanceof String && ((String) origin).startsWith("http")) {
+                Map<String, Object> parameters = new HashMap<>();
+                parameters.put("origin", origin);
+                parameters.put("storageTypes", "all");
+                driver.executeCdpCommand("Storage.clearDataForOrigin", parameters);
+            }
+
+            try {
+                driver.deleteNetworkConditions();
+            } catch (RuntimeException e) {
+                // There were no network conditions to delete.
+            }
+
+            // Detach DevTools from the old tab, so the next test's interceptors attach to the new one.
+            driver.maybeGetDevTools().ifPresent(DevTools::disconnectSession);
+            driver.switchTo().newWindow(WindowType.TAB);
+            String newTab = driver.getWindowHandle();
+
+            for (String handle : driver.getWindowHandles()) {
+                if (!handle.equals(newTab)) {
+                    driver.switchTo().window(handle).close();
+                }
+            }
+
+            driver.switchTo().window(newTab);
+        }
+
+        void quit() {
+            try {
+                driver.quit();
+            } catch (RuntimeException e) {
+                log.warn("Failed to quit pooled driver #{}.", id, e);
+            }
+        }
+    }
+}
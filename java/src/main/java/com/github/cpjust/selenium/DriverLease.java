@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.selenium;
+
+import lombok.Getter;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+/**
+ * A driver borrowed from a {@link ChromeDriverPool}.  Closing the lease resets the driver and hands it back to the pool.
+ */
+public class DriverLease implements AutoCloseable {
+    private final ChromeDriverPool pool;
+    private final ChromeDriverPool.PooledDriver pooledDriver;
+    @Getter
+    private final long waitMillis;
+    private boolean closed;
+
+    DriverLease(ChromeDriverPool pool, ChromeDriverPool.PooledDriver pooledDriver, long waitMillis) {
+        this.pool = pool;
+        this.pooledDriver = pooledDriver;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * @return The leased driver.  Only valid until this lease is closed.
+     */
+    public ChromeDriver getDriver() {
+        return pooledDriver.getDriver();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        pool.release(pooledDriver);
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.selenium;
+
+import com.github.cpjust.network.HarArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.devtools.NetworkInterceptor;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Records or replays a Chrome driver's traffic through a HAR file, using DevTools rather than a proxy, so it also works
+ * for HTTPS sites without installing a certificate.  Recording goes through the {@link NetworkInterceptor}; replaying
+ * uses the Fetch domain directly, since the interceptor can't fail a request the way Playwright's replay does.
+ */
+@Slf4j
+public class HarNetworkInterceptor implements Closeable {
+    /** Headers that describe the original encoding of the body, which is stored decoded. */
+    private static final Set<String> SKIPPED_HEADERS = new HashSet<>(Arrays.asList(
+            "content-length", "content-encoding", "transfer-encoding"));
+
+    private static final Event<Map<String, Object>> REQUEST_PAUSED =
+            new Event<>("Fetch.requestPaused", input -> input.read(Json.MAP_TYPE));
+
+    private final HarArchive archive;
+    private final boolean recording;
+    private final NetworkInterceptor interceptor;
+    private final DevTools devTools;
+
+    private HarNetworkInterceptor(WebDriver driver, HarArchive archive, boolean recording) {
+        this.archive = archive;
+        this.recording = recording;
+
+        if (recording) {
+            Filter filter = next -> request -> record(next.execute(request), request);
+            this.interceptor = new NetworkInterceptor(driver, filter);
+            this.devTools = null;
+        } else {
+            this.interceptor = null;
+            this.devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSessionIfThereIsNotOne();
+            devTools.addListener(REQUEST_PAUSED, this::replay);
+            devTools.send(new Command<>("Fetch.enable", new HashMap<>()));
+        }
+    }
+
+    /**
+     * Sends the driver's requests to the network and saves the responses to a HAR file when closed.
+     *
+     * @param driver  A Chromium based driver.
+     * @param harPath The HAR file to write.
+     * @return The interceptor, which must be closed after the test.
+     */
+    public static HarNetworkInterceptor record(WebDriver driver, Path harPath) {
+        return new HarNetworkInterceptor(driver, HarArchive.create(harPath), true);
+    }
+
+    /**
+     * Answers the driver's requests from a HAR file.  Requests that aren't in the file are aborted, like Playwright's
+     * {@code HarNotFound.ABORT}, so both engines fail the same way when a recording is out of date.
+     *
+     * @param driver  A Chromium based driver.
+     * @param harPath The HAR file to read.
+     * @return The interceptor, which must be closed after the test.
+     * @throws IOException If the HAR file can't be read.
+     */
+    public static HarNetworkInterceptor replay(WebDriver driver, Path harPath) throws IOException {
+        if (!Files.isRegularFile(harPath)) {
+            throw new IOException("No HAR recording at " + harPath + "!  Run once with -Dnetwork.mode=record first.");
+        }
+
+        return new HarNetworkInterceptor(driver, HarArchive.load(harPath), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (recording) {
+            interceptor.close();
+            archive.save();
+            log.info("Recorded {} responses.", archive.size());
+        } else {
+            devTools.send(new Command<>("Fetch.disable", new HashMap<>()));
+            devTools.clearListeners();
+        }
+    }
+
+    private HttpResponse record(HttpResponse response, HttpRequest request) {
+        byte[] body = Contents.bytes(response.getContent());
+        List<HarArchive.HarHeader> headers = new ArrayList<>();
+
+        for (String name : response.getHeaderNames()) {
+            for (String value : response.getHeaders(name)) {
+                headers.add(new HarArchive.HarHeader(name, value));
+            }
+        }
+
+        archive.add(request.getMethod().toString(), request.getUri(), response.getStatus(), headers, body);
+        response.setContent(Contents.bytes(body));
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay(Map<String, Object> requestPaused) {
+        Map<String, Object> request = (Map<String, Object>) requestPaused.get("request");
+        String method = (String) request.get("method");
+        String url = (String) request.get("url");
+        Map<String, Object> params = new HashMap<>();
+        params.put("requestId", requestPaused.get("requestId"));
+        Optional<HarArchive.HarEntry> entry = archive.find(method, url);
+
+        if (!entry.isPresent()) {
+            log.debug("No recording for {} {}", method, url);
+            params.put("errorReason", "Failed");
+            devTools.send(new Command<>("Fetch.failRequest", params));
+            return;
+        }
+
+        List<Map<String, Object>> headers = new ArrayList<>();
+
+        for (HarArchive.HarHeader header : entry.get().getResponse().getHeaders()) {
+            if (!SKIPPED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                Map<String, Object> cdpHeader = new HashMap<>();
+                cdpHeader.put("name", header.getName());
+                cdpHeader.put("value", header.getValue());
+                headers.add(cdpHeader);
+            }
+        }
+
+        try {
+            params.put("body", Base64.getEncoder().encodeToString(archive.getBody(entry.get())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        params.put("responseCode", entry.get().getResponse().getStatus());
+        params.put("responseHeaders", headers);
+        devTools.send(new Command<>("Fetch.fulfillRequest", params));
+    }
+}
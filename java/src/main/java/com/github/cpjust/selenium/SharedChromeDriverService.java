@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.selenium;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ChromeDriver server that is shared by many sessions.
+ * <p>
+ * Quitting a {@link org.openqa.selenium.chrome.ChromeDriver} stops the service it was started with, which would kill
+ * every other session using it.  This service ignores {@link #stop()} and only stops on {@link #shutdown()}.
+ */
+public class SharedChromeDriverService extends ChromeDriverService {
+    private volatile boolean shuttingDown;
+
+    private SharedChromeDriverService(File executable, int port, Duration timeout, List<String> args,
+                                      Map<String, String> environment) throws IOException {
+        super(executable, port, timeout, args, environment);
+    }
+
+    /**
+     * @return A builder for the service, with the same options as {@link ChromeDriverService.Builder}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Does nothing, so quitting one session doesn't stop the server.  See {@link #shutdown()}.
+     */
+    @Override
+    public void stop() {
+        if (shuttingDown) {
+            super.stop();
+        }
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void shutdown() {
+        shuttingDown = true;
+        super.stop();
+    }
+
+    /**
+     * Builds a {@link SharedChromeDriverService}.
+     */
+    public static class Builder extends ChromeDriverService.Builder {
+        @Override
+        protected ChromeDriverService createDriverService(File exe, int port, Duration timeout, List<String> args,
+                                                          Map<String, String> environment) {
+            try {
+                return new SharedChromeDriverService(exe, port, timeout, args, environment);
+            } catch (IOException e) {
+                throw new WebDriverException(e);
+            }
+        }
+    }
+}
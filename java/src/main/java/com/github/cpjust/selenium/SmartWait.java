@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.selenium;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Explicit waits to use instead of Selenium's implicit wait, which makes every lookup of a missing element block for
+ * the whole timeout.
+ * <p>
+ * {@link #waitFor(By)} polls, starting every few milliseconds and backing off, so elements that are already there are
+ * found in one round trip.  {@link #waitForSelectors(String...)} waits inside the page with a MutationObserver, so it
+ * returns as soon as the DOM changes and waits for several selectors in a single command.
+ * <p>
+ * The time spent waiting is recorded per locator for the whole JVM, see {@link #logSlowest(int)}.
+ */
+@Slf4j
+public class SmartWait {
+    private static final long INITIAL_POLL_MILLIS = 10;
+    private static final long MAX_POLL_MILLIS = 250;
+    private static final String OBSERVER_SCRIPT = ""
+            + "const selectors = arguments[0];"
+            + "const timeoutMs = arguments[1];"
+            + "const done = arguments[arguments.length - 1];"
+            + "const find = () => {"
+            + "  const elements = selectors.map(selector => document.querySelector(selector));"
+            + "  return elements.every(element => element) ? elements : null;"
+            + "};"
+            + "const found = find();"
+            + "if (found) { done(found); return; }"
+            + "let timer;"
+            + "const observer = new MutationObserver(() => {"
+            + "  const elements = find();"
+            + "  if (elements) { observer.disconnect(); clearTimeout(timer); done(elements); }"
+            + "});"
+            + "observer.observe(document.documentElement, {childList: true, subtree: true, attributes: true, characterData: true});"
+            + "timer = setTimeout(() => { observer.disconnect(); done(null); }, timeoutMs);";
+
+    private static final ConcurrentMap<String, WaitStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+    private final WebDriver driver;
+    private final Duration timeout;
+
+    /**
+     * @param driver  The driver.  Its implicit wait must be 0, and its script timeout longer than {@code timeout}.
+     * @param timeout How long to wait before giving up.
+     */
+    public SmartWait(WebDriver driver, Duration timeout) {
+        this.driver = driver;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Waits for an element to be in the DOM by polling.
+     *
+     * @param by The locator.
+     * @return The first matching element.
+     * @throws TimeoutException If no element matches within the timeout.
+     */
+    public WebElement waitFor(By by) {
+        return waitForAll(by).get(0);
+    }
+
+    /**
+     * Waits for at least one element to be in the DOM by polling.
+     *
+     * @param by The locator.
+     * @return All the matching elements.
+     * @throws TimeoutException If no element matches within the timeout.
+     */
+    public List<WebElement> waitForAll(By by) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long pollMillis = INITIAL_POLL_MILLIS;
+
+        while (true) {
+            List<WebElement> elements = driver.findElements(by);
+
+            if (!elements.isEmpty()) {
+                record(by.toString(), start);
+                return elements;
+            }
+
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+            if (remainingMillis <= 0) {
+                record(by.toString(), start);
+                throw new TimeoutException("Timed out after " + timeout.toMillis() + " ms waiting for " + by);
+            }
+
+            try {
+                Thread.sleep(Math.min(pollMillis, remainingMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + by, e);
+            }
+
+            pollMillis = Math.min(MAX_POLL_MILLIS, pollMillis * 2);
+        }
+    }
+
+    /**
+     * Waits inside the page until every CSS selector matches an element, in a single command.
+     *
+     * @param cssSelectors The selectors.
+     * @return The first element matching each selector, in the same order.
+     * @throws TimeoutException If any selector doesn't match within the timeout.
+     */
+    @SuppressWarnings("unchecked")
+    public List<WebElement> waitForSelectors(String... cssSelectors) {
+        long start = System.nanoTime();
+        String key = String.join(" + ", cssSelectors);
+        Object result = ((JavascriptExecutor) driver).executeAsyncScript(OBSERVER_SCRIPT, Arrays.asList(cssSelectors),
+                timeout.toMillis());
+        record(key, start);
+
+        if (result == null) {
+            throw new TimeoutException("Timed out after " + timeout.toMillis() + " ms waiting for all of: " + key);
+        }
+
+        return (List<WebElement>) result;
+    }
+
+    /**
+     * Waits inside the page until a CSS selector matches an element.
+     *
+     * @param cssSelector The selector.
+     * @return The first matching element.
+     * @throws TimeoutException If the selector doesn't match within the timeout.
+     */
+    public WebElement waitForSelector(String cssSelector) {
+        return waitForSelectors(cssSelector).get(0);
+    }
+
+    /**
+     * Logs the locators that spent the most time waiting in this JVM.
+     *
+     * @param count How many locators to log.
+     */
+    public static void logSlowest(int count) {
+        // Sort copies, since other test threads may still be adding to the statistics.
+        List<Map.Entry<String, WaitStatistics>> entries = new ArrayList<>();
+
+        for (Map.Entry<String, WaitStatistics> entry : STATISTICS.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().copy()));
+        }
+
+        entries.sort(Comparator.comparingLong((Map.Entry<String, WaitStatistics> entry) -> entry.getValue().getTotalNanos())
+                .reversed());
+
+        for (Map.Entry<String, WaitStatistics> entry : entries.subList(0, Math.min(count, entries.size()))) {
+            log.info("Waited for {}: {}", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void record(String key, long startNanos) {
+        STATISTICS.computeIfAbsent(key, k -> new WaitStatistics()).add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * The wait times of one locator.
+     */
+    private static class WaitStatistics {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized long getTotalNanos() {
+            return totalNanos;
+        }
+
+        synchronized WaitStatistics copy() {
+            WaitStatistics copy = new WaitStatistics();
+            copy.count = count;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%d waits, %d ms total, %d ms avg, %d ms max", count,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos / count),
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An in-process HTTP server that stands in for a remote site, serving static pages from the classpath and any
+ * emulated endpoints added with {@link #addHandler(String, HttpHandler)}.
+ * <p>
+ * Tests opt in with {@code -Dsite.mode=local}, which starts one shared server per JVM (see {@link #startShared()}) and
+ * makes {@link #resolveUrl(String)} point the site's URLs at it.
+ */
+@Slf4j
+public class LocalSiteServer implements AutoCloseable {
+    private static final byte[] NOT_FOUND = "Not found".getBytes();
+    private static LocalSiteServer sharedServer;
+
+    private final String resourceRoot;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, byte[]> resourceCache = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a server.
+     *
+     * @param port         The port to listen on, or 0 for any free port.
+     * @param resourceRoot The classpath directory the static pages are served from.
+     * @throws IOException If the server can't be started.
+     */
+    public LocalSiteServer(int port, String resourceRoot) throws IOException {
+        this.resourceRoot = resourceRoot.endsWith("/") ? resourceRoot : resourceRoot + "/";
+        this.httpServer = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-site-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        httpServer.createContext("/", this::serveResource);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        log.info("Local site server serving '{}' at {}", resourceRoot, getBaseUrl());
+    }
+
+    /**
+     * @return True if tests should use the local server instead of the real site.
+     */
+    public static boolean isEnabled() {
+        return "local".equalsIgnoreCase(System.getProperty("site.mode", "live"));
+    }
+
+    /**
+     * Starts the server shared by all tests in the JVM, if {@link #isEnabled()} and it isn't already running.
+     * It serves {@code site/magento.softwaretestingboard.com} with the Magento cart endpoints emulated, on the port in
+     * the {@code site.local.port} system property (defaults to any free port), and is stopped when the JVM exits.
+     *
+     * @throws IOException If the server can't be started.
+     */
+    public static synchronized void startShared() throws IOException {
+        if (sharedServer != null || !isEnabled()) {
+            return;
+        }
+
+        LocalSiteServer server = new LocalSiteServer(Integer.getInteger("site.local.port", 0),
+                "site/magento.softwaretestingboard.com");
+        new MagentoCartEmulator().register(server);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "local-site-server-shutdown"));
+        sharedServer = server;
+    }
+
+    /**
+     * Points a URL of the real site at the shared local server, keeping its path and query.
+     *
+     * @param url The URL of the real site.
+     * @return The local URL if the shared server is running, otherwise the URL unchanged.
+     */
+    public static synchronized String resolveUrl(String url) {
+        if (sharedServer == null) {
+            return url;
+        }
+
+        URI uri = URI.create(url);
+        String pathAndQuery = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        return sharedServer.getBaseUrl() + pathAndQuery;
+    }
+
+    /**
+     * Adds an emulated endpoint.
+     *
+     * @param path    The path prefix to handle.
+     * @param handler The handler.
+     */
+    public void addHandler(String path, HttpHandler handler) {
+        httpServer.createContext(path, handler);
+    }
+
+    /**
+     * @return The base URL of the server, e.g. {@code http://localhost:12345}.
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + httpServer.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends a complete response and closes the exchange.
+     *
+     * @param exchange    The exchange.
+     * @param status      The HTTP status.
+     * @param contentType The content type.
+     * @param body        The body.
+     * @throws IOException If the response can't be written.
+     */
+    static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private void serveResource(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body = path.contains("..") ? null : getResource(resourceRoot + path.substring(1));
+
+        if (body == null) {
+            send(exchange, 404, "text/plain", NOT_FOUND);
+        } else {
+            send(exchange, 200, getContentType(path), body);
+        }
+    }
+
+    private byte[] getResource(String resourceName) {
+        byte[] cached = resourceCache.get(resourceName);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+        try (InputStream resourceStream = loader.getResourceAsStream(resourceName)) {
+            if (resourceStream == null) {
+                return null;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = resourceStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+
+            resourceCache.putIfAbsent(resourceName, bytes.toByteArray());
+            return resourceCache.get(resourceName);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read resource: " + resourceName, e);
+        }
+    }
+
+    private static String getContentType(String path) {
+        String lowerPath = path.toLowerCase(Locale.ROOT);
+
+        if (lowerPath.endsWith(".html")) {
+            return "text/html; charset=utf-8";
+        } else if (lowerPath.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        } else if (lowerPath.endsWith(".js")) {
+            return "application/javascript; charset=utf-8";
+        } else if (lowerPath.endsWith(".json")) {
+            return "application/json; charset=utf-8";
+        } else if (lowerPath.endsWith(".png")) {
+            return "image/png";
+        } else if (lowerPath.endsWith(".jpg") || lowerPath.endsWith(".jpeg")) {
+            return "image/jpeg";
+        }
+
+        return "application/octet-stream";
+    }
+}
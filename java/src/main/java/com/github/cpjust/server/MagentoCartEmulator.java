@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.server;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emulates the Magento add-to-cart and minicart endpoints used by the local copy of the product page.
+ * Each browser context gets its own cart through a session cookie, so any number of contexts can run at once.
+ */
+public class MagentoCartEmulator {
+    private static final String SESSION_COOKIE = "local_session";
+
+    private final ConcurrentMap<String, AtomicInteger> cartsBySession = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the cart endpoints to a server.
+     *
+     * @param server The server.
+     */
+    public void register(LocalSiteServer server) {
+        server.addHandler("/checkout/cart/add", this::addToCart);
+        server.addHandler("/customer/section/load", this::loadSections);
+    }
+
+    private void addToCart(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            LocalSiteServer.send(exchange, 405, "text/plain", new byte[0]);
+            return;
+        }
+
+        int count = getCart(exchange).incrementAndGet();
+        sendJson(exchange, "{\"success\":true,\"summary_count\":" + count + "}");
+    }
+
+    private void loadSections(HttpExchange exchange) throws IOException {
+        int count = getCart(exchange).get();
+        sendJson(exchange, "{\"cart\":{\"summary_count\":" + count + "}}");
+    }
+
+    private AtomicInteger getCart(HttpExchange exchange) {
+        String sessionId = getSessionId(exchange);
+
+        if (sessionId == null) {
+            sessionId = UUID.randomUUID().toString();
+            exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + sessionId + "; Path=/");
+        }
+
+        return cartsBySession.computeIfAbsent(sessionId, id -> new AtomicInteger());
+    }
+
+    private static String getSessionId(HttpExchange exchange) {
+        List<String> cookieHeaders = exchange.getRequestHeaders().get("Cookie");
+
+        if (cookieHeaders == null) {
+            return null;
+        }
+
+        for (String cookieHeader : cookieHeaders) {
+            for (String cookie : cookieHeader.split(";")) {
+                String[] nameAndValue = cookie.trim().split("=", 2);
+
+                if (nameAndValue.length == 2 && SESSION_COOKIE.equals(nameAndValue[0])) {
+                    return nameAndValue[1];
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        LocalSiteServer.send(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+}
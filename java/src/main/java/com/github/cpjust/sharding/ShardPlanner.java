@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.sharding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Splits tests into shards of about equal total duration with the longest-processing-time-first heuristic: tests are
+ * taken longest first and each one goes to the shard with the least work so far.
+ * <p>
+ * The plan only depends on the order of the tests and their durations, so every shard computes the same plan and
+ * runs its own part of it.
+ */
+public final class ShardPlanner {
+    private ShardPlanner() {
+    }
+
+    /**
+     * @param tests      The tests, in a stable order.
+     * @param durationMs Gets a test's expected duration.
+     * @param group      Gets a test's setup group, e.g. the storage snapshot it uses.  Tests of the same group run next
+     *                   to each other within a shard.
+     * @param shardCount The number of shards.
+     * @param <T>        The type of the tests.
+     * @return The shards, each with its tests grouped and otherwise in their original order.
+     */
+    public static <T> List<List<T>> plan(List<T> tests, ToDoubleFunction<T> durationMs, Function<T, String> group,
+                                         int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1 but was " + shardCount);
+        }
+
+        List<Integer> longestFirst = new ArrayList<>();
+
+        for (int i = 0; i < tests.size(); i++) {
+            longestFirst.add(i);
+        }
+
+        // Ties keep the original order, so the plan is the same in every shard.
+        longestFirst.sort(Comparator.comparingDouble((Integer i) -> durationMs.applyAsDouble(tests.get(i)))
+                .reversed()
+                .thenComparing(i -> i));
+
+        double[] loadMs = new double[shardCount];
+        PriorityQueue<Integer> shardsByLoad = new PriorityQueue<>(Comparator.comparingDouble((Integer shard) -> loadMs[shard])
+                .thenComparing(shard -> shard));
+        List<List<Integer>> assigned = new ArrayList<>();
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardsByLoad.add(shard);
+            assigned.add(new ArrayList<>());
+        }
+
+        for (int test : longestFirst) {
+            int shard = shardsByLoad.poll();
+            assigned.get(shard).add(test);
+            loadMs[shard] += durationMs.applyAsDouble(tests.get(test));
+            shardsByLoad.add(shard);
+        }
+
+        List<List<T>> shards = new ArrayList<>();
+
+        for (List<Integer> shardTests : assigned) {
+            shardTests.sort(Comparator.naturalOrder());
+            Map<String, List<T>> byGroup = new LinkedHashMap<>();
+
+            for (int test : shardTests) {
+                byGroup.computeIfAbsent(group.apply(tests.get(test)), key -> new ArrayList<>()).add(tests.get(test));
+            }
+
+            List<T> ordered = new ArrayList<>();
+            byGroup.values().forEach(ordered::addAll);
+            shards.add(ordered);
+        }
+
+        return shards;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The historical duration of each test, kept in a properties file of {@code <class>.<method> = <ms>} so every shard of
+ * a run can plan from the same file.
+ * <p>
+ * Durations are smoothed with an exponential moving average, so one slow run doesn't move a test to another shard.
+ */
+@Slf4j
+public class TestDurations {
+    private static final double SMOOTHING = 0.3;
+
+    private final Path file;
+    private final Map<String, Double> durationsMs = new ConcurrentHashMap<>();
+    /** Test name -> {total ms, runs} in this run. */
+    private final Map<String, double[]> measured = new ConcurrentHashMap<>();
+    private double medianMs = 1;
+
+    private TestDurations(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param file The durations file.  A missing file is treated as empty.
+     * @return The durations.
+     * @throws IOException If the file can't be read.
+     */
+    public static TestDurations load(Path file) throws IOException {
+        TestDurations durations = new TestDurations(file);
+
+        if (Files.exists(file)) {
+            durations.durationsMs.putAll(read(file));
+        }
+
+        List<Double> values = new ArrayList<>(durations.durationsMs.values());
+
+        if (!values.isEmpty()) {
+            Collections.sort(values);
+            durations.medianMs = values.get(values.size() / 2);
+        }
+
+        return durations;
+    }
+
+    /**
+     * @param test The test name.
+     * @return The test's duration in milliseconds, or the median of all the known tests if it has never run.
+     */
+    public double getDurationMs(String test) {
+        Double duration = durationsMs.get(test);
+        return duration != null ? duration : medianMs;
+    }
+
+    /**
+     * Records a test's duration in this run.  A test that runs more than once, e.g. for each factory instance, is
+     * averaged.  Saved by {@link #save()}.
+     *
+     * @param test       The test name.
+     * @param durationMs The duration in milliseconds.
+     */
+    public void record(String test, double durationMs) {
+        measured.compute(test, (name, stats) -> stats == null
+                ? new double[] {durationMs, 1}
+                : new double[] {stats[0] + durationMs, stats[1] + 1});
+    }
+
+    /**
+     * Merges the durations recorded in this run into the file.  The file is locked while it's updated, so shards
+     * sharing it don't lose each other's updates.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public void save() throws IOException {
+        if (measured.isEmpty()) {
+            return;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+
+            try {
+                ByteBuffer existing = ByteBuffer.allocate((int) channel.size());
+
+                while (existing.hasRemaining() && channel.read(existing) >= 0) {
+                    // Keep reading until the whole file is in the buffer.
+                }
+
+                Map<String, Double> saved = parse(new String(existing.array(), StandardCharsets.UTF_8), file);
+
+                for (Map.Entry<String, double[]> test : measured.entrySet()) {
+                    double averageMs = test.getValue()[0] / test.getValue()[1];
+                    saved.merge(test.getKey(), averageMs, (old, now) -> old + SMOOTHING * (now - old));
+                }
+
+                Properties properties = new Properties();
+                saved.forEach((test, duration) -> properties.setProperty(test, String.format("%.0f", duration)));
+                StringWriter writer = new StringWriter();
+                properties.store(writer, "Test durations in milliseconds, used to balance test shards");
+
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(writer.toString().getBytes(StandardCharsets.UTF_8)), 0);
+            } finally {
+                lock.release();
+            }
+        }
+
+        log.info("Saved the durations of {} tests to {}", measured.size(), file);
+    }
+
+    private static Map<String, Double> read(Path file) throws IOException {
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), file);
+    }
+
+    private static Map<String, Double> parse(String text, Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(text));
+        Map<String, Double> durations = new TreeMap<>();
+
+        for (String test : properties.stringPropertyNames()) {
+            try {
+                durations.put(test, Double.parseDouble(properties.getProperty(test)));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring the invalid duration of {} in {}", test, file);
+            }
+        }
+
+        return durations;
+    }
+}
@@ -25,6 +25,10 @@ public class PropertyReader {
         Properties props = new Properties();
 
         try(InputStream resourceStream = loader.getResourceAsStream(resourceName)) {
+            if (resourceStream == null) {
+                throw new IOException("Resource not found: " + resourceName);
+            }
+
             props.load(resourceStream);
         }
 
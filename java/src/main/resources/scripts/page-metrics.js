@@ -0,0 +1,33 @@
+// Returns a promise of the current page's timing metrics as a JSON string.  Used by PageMetricsCollector.
+() => new Promise(resolve => {
+    const navigation = performance.getEntriesByType('navigation')[0] || {};
+    const resources = performance.getEntriesByType('resource');
+    const paints = {};
+    performance.getEntriesByType('paint').forEach(entry => paints[entry.name] = entry.startTime);
+
+    const metrics = {
+        timeToFirstByteMs: navigation.responseStart || 0,
+        domContentLoadedMs: navigation.domContentLoadedEventEnd || 0,
+        loadMs: navigation.loadEventEnd || 0,
+        firstPaintMs: paints['first-paint'] || 0,
+        firstContentfulPaintMs: paints['first-contentful-paint'] || 0,
+        largestContentfulPaintMs: 0,
+        requestCount: resources.length + 1,
+        transferredBytes: resources.reduce((total, entry) => total + (entry.transferSize || 0), navigation.transferSize || 0)
+    };
+    const done = () => resolve(JSON.stringify(metrics));
+
+    // LCP is only available through an observer, which doesn't fire at all if there's no LCP entry yet.
+    if (!PerformanceObserver.supportedEntryTypes || !PerformanceObserver.supportedEntryTypes.includes('largest-contentful-paint')) {
+        done();
+        return;
+    }
+
+    new PerformanceObserver((list, observer) => {
+        const entries = list.getEntries();
+        metrics.largestContentfulPaintMs = entries[entries.length - 1].startTime;
+        observer.disconnect();
+        done();
+    }).observe({type: 'largest-contentful-paint', buffered: true});
+    setTimeout(done, 100);
+})
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+import lombok.extern.slf4j.Slf4j;
+import org.testng.IAnnotationTransformer;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.annotations.ITestAnnotation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Retries known-flaky tests with a {@link FlakyRetryAnalyzer}, records every test's outcomes in the
+ * {@link TestHistory}, and picks the tests to run for the {@code flaky.quarantine} mode (applied by the
+ * {@link com.github.cpjust.sharding.ShardingListener} before it plans the shards).
+ * <p>
+ * Each {@link TestVariant} of a test, e.g. each network profile, has a history of its own.  Only the first attempt of
+ * each run is recorded, since a retry only runs after a failure and so would add flips of its own.
+ * <p>
+ * Registered with TestNG through {@code META-INF/services}.  The history is read from {@code flaky.history.file}
+ * (defaults to {@code test-history.properties}), and with {@code -Dflaky.history.record=true} this run's outcomes are
+ * merged into it.  The quarantined tests are usually run by a job of their own next to the other shards, e.g.
+ * {@code mvn test -Dflaky.quarantine=only}, while the shards run with {@code -Dflaky.quarantine=exclude}.  See
+ * {@link FlakyPolicy}.
+ */
+@Slf4j
+public class FlakyListener implements IAnnotationTransformer, IInvokedMethodListener, ISuiteListener {
+    private static TestHistory history;
+    private static final FlakyPolicy POLICY = FlakyPolicy.fromSystemProperties();
+    private static final AtomicInteger RETRIES_USED = new AtomicInteger();
+
+    private final boolean recording = Boolean.getBoolean("flaky.history.record");
+
+    /**
+     * @return The history loaded from the {@code flaky.history.file} system property.
+     */
+    static synchronized TestHistory getHistory() {
+        if (history == null) {
+            try {
+                history = TestHistory.load(Paths.get(System.getProperty("flaky.history.file", "test-history.properties")));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load the test history", e);
+            }
+        }
+
+        return history;
+    }
+
+    /**
+     * @return The policy read from the {@code flaky.*} system properties.
+     */
+    static FlakyPolicy getPolicy() {
+        return POLICY;
+    }
+
+    /**
+     * Takes one retry from the run's budget.
+     *
+     * @return True if the budget wasn't used up yet.
+     */
+    static boolean tryUseRetry() {
+        return RETRIES_USED.getAndUpdate(used -> used < POLICY.getRetryBudget() ? used + 1 : used)
+                < POLICY.getRetryBudget();
+    }
+
+    /**
+     * Keeps the tests this run should include for the {@code flaky.quarantine} mode.
+     *
+     * @param methods The tests.
+     * @return The tests to run.
+     */
+    public static List<IMethodInstance> filterQuarantined(List<IMethodInstance> methods) {
+        if (POLICY.getQuarantine() == FlakyPolicy.Quarantine.OFF) {
+            return methods;
+        }
+
+        boolean only = POLICY.getQuarantine() == FlakyPolicy.Quarantine.ONLY;
+        List<IMethodInstance> kept = methods.stream()
+                .filter(method -> POLICY.isQuarantined(getHistory().getOutcomes(
+                        getTestKey(method.getMethod(), method.getInstance()))) == only)
+                .collect(Collectors.toList());
+        log.info("Quarantine '{}': running {} of {} tests.", POLICY.getQuarantine().name().toLowerCase(Locale.ROOT), kept.size(),
+                methods.size());
+        return kept;
+    }
+
+    /**
+     * @param method   The test method.
+     * @param instance The test class instance.
+     * @return The test's name in the history, e.g. "SimplePlaywrightTest.checkProductInfo_verifyTitleAndPrice [4g]".
+     */
+    public static String getTestKey(ITestNGMethod method, Object instance) {
+        String test = method.getQualifiedName();
+        String variant = instance instanceof TestVariant ? ((TestVariant) instance).getVariant() : null;
+        return variant == null ? test : test + " [" + variant + "]";
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        if (annotation.getRetryAnalyzer() == null) {
+            annotation.setRetryAnalyzer(FlakyRetryAnalyzer.class);
+        }
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        // Outcomes are recorded after the test.
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (recording && method.isTestMethod() && testResult.getStatus() != ITestResult.SKIP) {
+            getHistory().record(getTestKey(testResult.getMethod(), testResult.getInstance()),
+                    testResult.getStatus() == ITestResult.SUCCESS);
+        }
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+        // Nothing to do until the suite finishes.
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (RETRIES_USED.get() > 0) {
+            log.info("Retried {} flaky test failures (budget {}).", RETRIES_USED.get(), POLICY.getRetryBudget());
+        }
+
+        if (!recording) {
+            return;
+        }
+
+        try {
+            getHistory().save();
+        } catch (IOException e) {
+            log.warn("Failed to save the test history", e);
+        }
+    }
+}
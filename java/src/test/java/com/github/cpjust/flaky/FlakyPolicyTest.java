@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FlakyPolicyTest {
+    private static final FlakyPolicy POLICY = FlakyPolicy.builder()
+            .retryFlipRate(0.1)
+            .maxRetries(3)
+            .retryBudget(10)
+            .targetFalseFailureRate(0.01)
+            .quarantineMinRuns(10)
+            .quarantineFlipRate(0.3)
+            .quarantine(FlakyPolicy.Quarantine.OFF)
+            .build();
+
+    @ParameterizedTest
+    @CsvSource({
+            "'', 0",
+            "P, 0",
+            "PPPP, 0",
+            "FFFF, 0",
+            "PPFF, 0.3333333333333333",
+            "PFPF, 1",
+    })
+    public void getFlipRate_returnsFractionOfChangedOutcomes(String outcomes, double expected) {
+        assertEquals(expected, FlakyPolicy.getFlipRate(outcomes), 1e-9);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'', 0",
+            "PPPP, 0",
+            "PFPP, 0.25",
+            "FFFF, 1",
+    })
+    public void getFailureRate_returnsFractionOfFailures(String outcomes, double expected) {
+        assertEquals(expected, FlakyPolicy.getFailureRate(outcomes), 1e-9);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // Never failed, or always failed: not flaky, so not retried.
+            "PPPPPPPPPP, 0",
+            "FFFFFFFFFF, 0",
+            // Flips, but less often than the retry flip rate.
+            "PPPPPPPPPPPPPPPPPPPPPPPPPPPPFF, 0",
+            // Fails 1 in 10: 2 retries make a false failure less likely than 1%.
+            "PPPPFPPPPP, 2",
+            // Fails 1 in 2: would need 7 retries, capped at 3.
+            "PFPFPFPFPF, 3",
+    })
+    public void getRetries_adaptsToFailureRate(String outcomes, int expected) {
+        assertEquals(expected, POLICY.getRetries(outcomes));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // Too few runs to judge.
+            "PFPF, false",
+            "PFPFPFPFPF, true",
+            "PPPPPPPPPF, false",
+            "FFFFFFFFFF, false",
+            "PPPFFPPPFFPPP, true",
+    })
+    public void isQuarantined_needsEnoughRunsAndFlips(String outcomes, boolean expected) {
+        assertEquals(expected, POLICY.isQuarantined(outcomes));
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+import lombok.extern.slf4j.Slf4j;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retries a failed test only if its {@link TestHistory} shows it's flaky, as many times as the {@link FlakyPolicy}
+ * allows for how often it fails, while the run's retry budget lasts.  Added to every test by {@link FlakyListener}.
+ */
+@Slf4j
+public class FlakyRetryAnalyzer implements IRetryAnalyzer {
+    /** Set on a failed result that's being retried, which TestNG then reports as skipped. */
+    public static final String RETRIED_ATTRIBUTE = "flaky.retried";
+
+    private final AtomicInteger retries = new AtomicInteger();
+
+    @Override
+    public boolean retry(ITestResult result) {
+        String test = FlakyListener.getTestKey(result.getMethod(), result.getInstance());
+        int maxRetries = FlakyListener.getPolicy().getRetries(FlakyListener.getHistory().getOutcomes(test));
+
+        if (retries.get() >= maxRetries) {
+            return false;
+        }
+
+        if (!FlakyListener.tryUseRetry()) {
+            log.info("Not retrying flaky test {} because the run's retry budget is used up.", test);
+            return false;
+        }
+
+        int retry = retries.incrementAndGet();
+        result.setAttribute(RETRIED_ATTRIBUTE, true);
+        log.info("Retrying flaky test {} ({} of {}).", test, retry, maxRetries);
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestHistoryTest {
+    @Test
+    public void save_retriedTest_keepsOnlyFirstOutcomeOfRun() throws IOException {
+        Path file = Files.createTempDirectory("history").resolve("history.properties");
+        TestHistory history = TestHistory.load(file);
+
+        history.record("Test.a [slow-5s]", false);
+        history.record("Test.a [slow-5s]", true);
+        history.record("Test.a [4g]", true);
+        history.save();
+
+        TestHistory saved = TestHistory.load(file);
+        assertEquals("F", saved.getOutcomes("Test.a [slow-5s]"));
+        assertEquals("P", saved.getOutcomes("Test.a [4g]"));
+        assertEquals("", saved.getOutcomes("Test.a"));
+    }
+
+    @Test
+    public void save_manyRuns_keepsLatestOutcomes() throws IOException {
+        Path file = Files.createTempDirectory("history").resolve("history.properties");
+
+        for (int run = 0; run < TestHistory.MAX_OUTCOMES + 5; run++) {
+            TestHistory history = TestHistory.load(file);
+            history.record("Test.a", run % 2 == 0);
+            history.save();
+        }
+
+        String outcomes = TestHistory.load(file).getOutcomes("Test.a");
+        assertEquals(TestHistory.MAX_OUTCOMES, outcomes.length());
+        // The last run (34) passed.
+        assertEquals(TestHistory.PASSED, outcomes.charAt(outcomes.length() - 1));
+        assertEquals(TestHistory.FAILED, outcomes.charAt(0));
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.flaky;
+
+/**
+ * Implemented by test classes whose {@code @Factory} creates one instance per variant of the same tests, e.g. per
+ * network profile, so each variant gets a {@link TestHistory} of its own.  Otherwise a test that always fails in one
+ * variant and always passes in another would look flaky.  The Playwright and Selenium test bases implement it with
+ * the instance's network profile.
+ */
+public interface TestVariant {
+    /**
+     * @return The variant of this instance, e.g. "slow-5s", or null if the tests only have one.
+     */
+    String getVariant();
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.launch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UserDataDirsTest {
+    @Test
+    public void acquire_slotHeldByAnotherInstance_takesTheNextSlot() throws IOException {
+        Path root = Files.createTempDirectory("user-data");
+        UserDataDirs shard0 = new UserDataDirs(root);
+        UserDataDirs shard1 = new UserDataDirs(root);
+
+        Path first = shard0.acquire();
+        Path second = shard1.acquire();
+
+        assertEquals("slot-0", first.getFileName().toString());
+        assertEquals("slot-1", second.getFileName().toString());
+    }
+
+    @Test
+    public void release_freesTheSlotForOtherInstances() throws IOException {
+        Path root = Files.createTempDirectory("user-data");
+        UserDataDirs shard0 = new UserDataDirs(root);
+        UserDataDirs shard1 = new UserDataDirs(root);
+
+        shard0.release(shard0.acquire());
+
+        assertEquals("slot-0", shard1.acquire().getFileName().toString());
+        assertEquals("slot-1", shard0.acquire().getFileName().toString());
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.listeners;
+
+import com.github.cpjust.flaky.FlakyRetryAnalyzer;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TestNG tests that are only run by {@link ListenersTest}, which checks that the listeners registered through
+ * {@code META-INF/services} are applied to them.
+ */
+public class ListenersFixture {
+    @Test
+    public void first() {
+        assertFlakyListenerApplied();
+    }
+
+    @Test
+    public void second() {
+        assertFlakyListenerApplied();
+    }
+
+    private static void assertFlakyListenerApplied() {
+        assertTrue(Reporter.getCurrentTestResult().getMethod().getRetryAnalyzer() instanceof FlakyRetryAnalyzer,
+                "FlakyListener didn't add its retry analyzer");
+    }
+}
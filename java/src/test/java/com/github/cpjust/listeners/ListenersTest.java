@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.listeners;
+
+import com.github.cpjust.flaky.FlakyListener;
+import com.github.cpjust.results.ResultStreamListener;
+import com.github.cpjust.sharding.ShardingListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.platform.testkit.engine.EngineTestKit;
+import org.testng.ITestNGListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+/**
+ * Runs TestNG tests through the JUnit Platform, the way Surefire does, and fails if the TestNG engine or the listeners
+ * registered through {@code META-INF/services} aren't loaded.
+ */
+public class ListenersTest {
+    @AfterEach
+    public void clearShard() {
+        System.clearProperty("shard.count");
+        System.clearProperty("shard.index");
+    }
+
+    @Test
+    public void serviceFile_listsEveryListener() {
+        List<Class<?>> listeners = new ArrayList<>();
+
+        for (ITestNGListener listener : ServiceLoader.load(ITestNGListener.class)) {
+            listeners.add(listener.getClass());
+        }
+
+        assertTrue(listeners.containsAll(Arrays.asList(ShardingListener.class, ResultStreamListener.class,
+                FlakyListener.class)), "Listed: " + listeners);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1})
+    public void testNgEngine_appliesShardingAndFlakyListeners(int shardIndex) {
+        // ShardingListener runs one of the two tests in each of two shards, and each test checks FlakyListener.
+        System.setProperty("shard.count", "2");
+        System.setProperty("shard.index", String.valueOf(shardIndex));
+
+        EngineTestKit.engine("testng")
+                .selectors(selectClass(ListenersFixture.class))
+                .execute()
+                .testEvents()
+                .assertStatistics(stats -> stats.started(1).succeeded(1));
+    }
+}
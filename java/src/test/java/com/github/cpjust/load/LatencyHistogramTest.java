@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0",
+            "127, 127",
+            // From 128 on, values are rounded up to the top of their sub-bucket, which is 2 wide up to 255.
+            "128, 129",
+            "129, 129",
+            "130, 131",
+            "255, 255",
+            "256, 259",
+            "259, 259",
+            "260, 263",
+            "1000000, 1007615",
+    })
+    public void getValueAtPercentile_bucketBoundaries_returnsTopOfBucket(long value, long expected) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        // Recorded next to a larger value, so the top of the bucket isn't capped at the maximum.
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(expected, histogram.getValueAtPercentile(50));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {128, 1000, 1_000_000, Long.MAX_VALUE / 3, Long.MAX_VALUE - 1, Long.MAX_VALUE})
+    public void getValueAtPercentile_oneValue_returnsTheValue(long value) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+
+        // The top of the bucket is capped at the largest value recorded.
+        assertEquals(value, histogram.getValueAtPercentile(0));
+        assertEquals(value, histogram.getValueAtPercentile(100));
+        assertEquals(value, histogram.getMax());
+    }
+
+    @Test
+    public void record_negativeValue_countsAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void getValueAtPercentile_empty_returnsZero() {
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, 50, 90, 99, 99.9, 100})
+    public void getValueAtPercentile_randomValues_isWithinBucketOfExactValue(double percentile) {
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like latencies: mostly 1-100 ms, with a long tail.
+            values[i] = (long) Math.exp(9 + 1.5 * random.nextGaussian());
+            histogram.record(values[i]);
+        }
+
+        Arrays.sort(values);
+        long exact = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+        long value = histogram.getValueAtPercentile(percentile);
+
+        assertTrue(value >= exact && value <= exact * 1.016, "Expected " + exact + " but was " + value);
+    }
+
+    @Test
+    public void getMean_values_returnsExactMean() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.record(3000);
+
+        assertEquals(2000.0, histogram.getMean());
+    }
+
+    @Test
+    public void outputPercentileDistribution_values_printsScaledPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value * 1000L);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.outputPercentileDistribution(new PrintStream(bytes, true), 1000);
+        String output = bytes.toString();
+
+        assertTrue(output.contains("  50.175 0.500000000000         50           2.00"), output);
+        assertTrue(output.contains(" 100.000 1.000000000000        100"), output);
+        assertTrue(output.contains("#[Total count = 100]"), output);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import com.github.cpjust.playwright.BrowserPool;
+import com.github.cpjust.playwright.ContextExecutor;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The iterations here don't use their session, so no browser is launched.
+ */
+public class LoadGeneratorTest {
+    private static ContextExecutor newExecutor(int maxContexts) {
+        return new ContextExecutor(new BrowserPool(1, new BrowserType.LaunchOptions()), 1, maxContexts,
+                new Browser.NewContextOptions(), Duration.ofSeconds(1));
+    }
+
+    private static LoadProfile profile(int users, int iterations, long rampUpMs, long thinkMs) {
+        return LoadProfile.builder()
+                .users(users)
+                .rampUp(Duration.ofMillis(rampUpMs))
+                .duration(Duration.ofMinutes(1))
+                .iterationsPerUser(iterations)
+                .thinkTime(Duration.ofMillis(thinkMs))
+                .build();
+    }
+
+    @Test
+    public void run_iterationLimit_runsEveryUsersIterations() {
+        AtomicInteger runs = new AtomicInteger();
+        LoadResult result;
+
+        try (ContextExecutor executor = newExecutor(10)) {
+            result = new LoadGenerator(executor, profile(10, 3, 0, 0)).run((session, steps) -> {
+                steps.step("step", () -> { });
+                runs.incrementAndGet();
+            });
+        }
+
+        assertEquals(30, runs.get());
+        assertEquals(30, result.getIterations());
+        assertEquals(30, result.getHistograms().get("step").getTotalCount());
+        assertEquals(30, result.getHistograms().get(LoadResult.ITERATION).getTotalCount());
+    }
+
+    @Test
+    public void run_usersWithinContextLimit_runConcurrently() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        try (ContextExecutor executor = newExecutor(20)) {
+            new LoadGenerator(executor, profile(20, 1, 0, 0)).run((session, steps) -> {
+                threads.add(Thread.currentThread());
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(200);
+                running.decrementAndGet();
+            });
+        }
+
+        assertEquals(20, threads.size());
+        assertEquals(20, maxRunning.get());
+    }
+
+    @Test
+    public void run_rampUpAndThinkTime_delaysIterations() {
+        long start = System.nanoTime();
+        LoadResult result;
+
+        try (ContextExecutor executor = newExecutor(2)) {
+            // The second user starts after 300 ms, and waits 200 ms before its second iteration.
+            result = new LoadGenerator(executor, profile(2, 2, 600, 200)).run((session, steps) -> { });
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(4, result.getIterations());
+        assertTrue(elapsedMs >= 500, "Finished after " + elapsedMs + " ms");
+        // The think time isn't part of an iteration.
+        assertTrue(result.getHistograms().get(LoadResult.ITERATION).getMax() < 100_000);
+    }
+
+    @Test
+    public void run_waitingForAContext_countsTowardsLatency() {
+        LoadResult result;
+
+        try (ContextExecutor executor = newExecutor(1)) {
+            // The second user is due at once, but has to wait for the first user's context.
+            result = new LoadGenerator(executor, profile(2, 1, 0, 0)).run((session, steps) -> sleep(300));
+        }
+
+        LatencyHistogram iterations = result.getHistograms().get(LoadResult.ITERATION);
+        assertEquals(2, iterations.getTotalCount());
+        assertTrue(iterations.getMax() >= 600_000, "Max latency was " + iterations.getMax() + " us");
+    }
+
+    @Test
+    public void run_failingIterations_countsErrors() {
+        AtomicInteger runs = new AtomicInteger();
+        LoadResult result;
+
+        try (ContextExecutor executor = newExecutor(1)) {
+            result = new LoadGenerator(executor, profile(1, 4, 0, 0)).run((session, steps) -> {
+                if (runs.incrementAndGet() % 2 == 0) {
+                    throw new AssertionError("Wrong cart size!");
+                }
+            });
+        }
+
+        assertEquals(4, result.getIterations());
+        assertEquals(2, result.getErrors());
+        assertEquals(2, result.getHistograms().get(LoadResult.ITERATION).getTotalCount());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadResultTest {
+    @Test
+    public void recordIteration_failedIteration_countsErrorWithoutLatencies() {
+        LoadResult result = new LoadResult();
+        result.recordIteration(steps(120.5, 300), false);
+        result.recordIteration(steps(5000, 9000), true);
+
+        assertEquals(2, result.getIterations());
+        assertEquals(1, result.getErrors());
+        assertEquals(0.5, result.getErrorRate());
+        assertEquals(1, result.getHistograms().get("navigate").getTotalCount());
+        assertEquals(120_500, result.getHistograms().get("navigate").getMax());
+        assertEquals(300_000, result.getHistograms().get(LoadResult.ITERATION).getMax());
+    }
+
+    @Test
+    public void getErrorRate_noIterations_returnsZero() {
+        assertEquals(0, new LoadResult().getErrorRate());
+    }
+
+    @Test
+    public void write_steps_writesHgrmFilePerStep() throws IOException {
+        Path dir = Files.createTempDirectory("load");
+        LoadResult result = new LoadResult();
+        result.recordIteration(steps(100, 250), false);
+        result.write(dir);
+
+        String navigate = new String(Files.readAllBytes(dir.resolve("navigate.hgrm")), StandardCharsets.UTF_8);
+        assertTrue(navigate.contains("#[Total count = 1]"), navigate);
+        assertTrue(navigate.contains("     100.000 1.000000000000"), navigate);
+        assertTrue(Files.exists(dir.resolve(LoadResult.ITERATION + ".hgrm")));
+    }
+
+    private static Map<String, Double> steps(double navigateMs, double iterationMs) {
+        Map<String, Double> steps = new LinkedHashMap<>();
+        steps.put("navigate", navigateMs);
+        steps.put(LoadResult.ITERATION, iterationMs);
+        return steps;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.locators;
+
+import com.github.cpjust.constants.EchoFirCompressionShortKeys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LocatorRegistryTest {
+    @Test
+    public void of_shippedLocators_areValid() {
+        assertDoesNotThrow(() -> LocatorRegistry.of(EchoFirCompressionShortKeys.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "div.product-info-main h1.page-title",
+            "#option-label-size-143-item-168",
+            "div[data-role='swatch-options'] > div:nth-child(2)",
+            "a[title=\"Men's \\\"Echo\\\"\"]",
+            "a[title='Men\\'s Shorts']",
+            "#weird\\[id\\]",
+            "button:not([disabled]), a.action",
+            "span[data-bind=\"text: (a)\"]"
+    })
+    public void validateSelector_validSelector_returnsNull(String selector) {
+        assertNull(LocatorRegistry.validateSelector(selector));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', quoteCharacter = '`', value = {
+            "div[data-role='swatch-options'   | has an unclosed '['",
+            "div:not(.a                        | has an unclosed '('",
+            "div.a]                            | has an unmatched ']'",
+            "div:not([a)]                      | has an unmatched ')'",
+            "a[title='Men\\'s]                 | has an unclosed '",
+            "a[title=\"Men's]                  | has an unclosed \"",
+            "#id\\                             | ends with an escape",
+            "div.a >                           | ends with '>'",
+            "div.a,                            | ends with ','",
+            "div.a ~                           | ends with '~'"
+    })
+    public void validateSelector_invalidSelector_returnsProblem(String selector, String problem) {
+        assertEquals(problem, LocatorRegistry.validateSelector(selector));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   "})
+    public void validateSelector_emptySelector_returnsProblem(String selector) {
+        assertEquals("is empty", LocatorRegistry.validateSelector(selector));
+    }
+}
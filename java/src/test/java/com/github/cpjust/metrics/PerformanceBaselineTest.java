@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PerformanceBaselineTest {
+    @Test
+    public void save_twoShards_mergesBothShardsValues() throws IOException {
+        Path file = Files.createTempDirectory("baseline").resolve("baseline.json");
+        PerformanceBaseline shard0 = PerformanceBaseline.load(file, 10);
+        PerformanceBaseline shard1 = PerformanceBaseline.load(file, 10);
+
+        shard0.add("Test.a [4g]", "step.navigate", 100);
+        shard1.add("Test.a [slow-5s]", "step.navigate", 900);
+        shard1.add("Test.a [4g]", "step.navigate", 200);
+        shard0.save();
+        shard1.save();
+
+        PerformanceBaseline merged = PerformanceBaseline.load(file, 10);
+        assertEquals(150.0, merged.getMedian("Test.a [4g]", "step.navigate", 2));
+        assertEquals(900.0, merged.getMedian("Test.a [slow-5s]", "step.navigate", 1));
+    }
+
+    @Test
+    public void save_fullWindow_dropsOldestValues() throws IOException {
+        Path file = Files.createTempDirectory("baseline").resolve("baseline.json");
+        PerformanceBaseline baseline = PerformanceBaseline.load(file, 3);
+
+        for (int value = 1; value <= 5; value++) {
+            baseline.add("Test.a", "step.navigate", value);
+        }
+
+        baseline.save();
+        PerformanceBaseline saved = PerformanceBaseline.load(file, 3);
+        assertEquals(4.0, saved.getMedian("Test.a", "step.navigate", 3));
+        assertNull(saved.getMedian("Test.a", "step.navigate", 4));
+    }
+}
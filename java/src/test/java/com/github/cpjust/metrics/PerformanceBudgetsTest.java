@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PerformanceBudgetsTest {
+    @Test
+    public void check_networkLimit_overridesDefaultLimitForThatNetworkOnly() throws IOException {
+        Properties budgets = new Properties();
+        budgets.setProperty("step.navigate.max", "10000");
+        budgets.setProperty("network.4g.step.navigate.max", "3000");
+        PerformanceBudgets performanceBudgets = new PerformanceBudgets(budgets, newBaseline());
+
+        List<BudgetViolation> on4g = performanceBudgets.check("Test.a", "4g",
+                Collections.singletonMap("step.navigate", 4000.0));
+        List<BudgetViolation> onSlow = performanceBudgets.check("Test.a", "slow-5s",
+                Collections.singletonMap("step.navigate", 4000.0));
+
+        assertEquals(1, on4g.size());
+        assertEquals(3000, on4g.get(0).getLimit());
+        assertTrue(onSlow.isEmpty());
+    }
+
+    @Test
+    public void check_baselinePerNetwork_doesNotMixProfiles() throws IOException {
+        Properties budgets = new Properties();
+        budgets.setProperty("step.navigate.max", "100000");
+        budgets.setProperty("regression.min.samples", "3");
+        PerformanceBudgets performanceBudgets = new PerformanceBudgets(budgets, newBaseline());
+
+        for (int run = 0; run < 3; run++) {
+            performanceBudgets.check("Test.a", "slow-5s", Collections.singletonMap("step.navigate", 9000.0));
+            performanceBudgets.check("Test.a", "4g", Collections.singletonMap("step.navigate", 1000.0));
+        }
+
+        assertTrue(performanceBudgets.check("Test.a", "slow-5s",
+                Collections.singletonMap("step.navigate", 9000.0)).isEmpty());
+        assertEquals(1, performanceBudgets.check("Test.a", "4g",
+                Collections.singletonMap("step.navigate", 2000.0)).size());
+    }
+
+    private static PerformanceBaseline newBaseline() throws IOException {
+        return PerformanceBaseline.load(Files.createTempDirectory("baseline").resolve("baseline.json"), 10);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class HarArchiveTest {
+    private static final String URL = "https://example.com/page?id=1";
+
+    @Test
+    public void save_recordedResponse_loadsTheSameResponse() throws IOException {
+        Path file = Files.createTempDirectory("har").resolve("Test/test.har");
+        byte[] body = {0, 1, 2, (byte) 0xff};
+        HarArchive archive = HarArchive.create(file);
+        archive.add("GET", URL, 201, Collections.singletonList(new HarArchive.HarHeader("Content-Type", "image/png")),
+                body);
+        archive.save();
+
+        HarArchive loaded = HarArchive.load(file);
+        HarArchive.HarEntry entry = loaded.find("get", URL).get();
+        assertEquals(1, loaded.size());
+        assertEquals(201, entry.getResponse().getStatus());
+        assertEquals("image/png", entry.getResponse().getHeaders().get(0).getValue());
+        assertArrayEquals(body, loaded.getBody(entry));
+    }
+
+    @Test
+    public void save_overExistingFile_leavesOnlyTheHarFile() throws IOException {
+        Path dir = Files.createTempDirectory("har");
+        Path file = dir.resolve("test.har");
+        Files.write(file, "old".getBytes(StandardCharsets.UTF_8));
+        HarArchive archive = HarArchive.create(file);
+        archive.add("GET", URL, 200, Collections.emptyList(), new byte[0]);
+        archive.save();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(Collections.singletonList(file), files.collect(Collectors.toList()));
+        }
+
+        assertEquals(1, HarArchive.load(file).size());
+    }
+
+    @Test
+    public void find_repeatedRequest_returnsFirstResponse() {
+        HarArchive archive = HarArchive.create(Paths.get("test.har"));
+        archive.add("GET", URL, 200, Collections.emptyList(), new byte[0]);
+        archive.add("GET", URL, 500, Collections.emptyList(), new byte[0]);
+
+        assertEquals(2, archive.size());
+        assertEquals(200, archive.find("GET", URL).get().getResponse().getStatus());
+    }
+
+    @Test
+    public void find_otherMethodOrUrl_returnsEmpty() {
+        HarArchive archive = HarArchive.create(Paths.get("test.har"));
+        archive.add("GET", URL, 200, Collections.emptyList(), new byte[0]);
+
+        assertFalse(archive.find("POST", URL).isPresent());
+        assertFalse(archive.find("GET", URL + "&id=2").isPresent());
+    }
+
+    @Test
+    public void getBody_playwrightRecording_readsTextAndSeparateFiles() throws IOException {
+        // Playwright stores text bodies as plain text and, unless told to embed them, others in files next to the HAR.
+        Path dir = Files.createTempDirectory("har");
+        Files.write(dir.resolve("abc.png"), new byte[] {4, 5, 6});
+        Path file = dir.resolve("test.har");
+        Files.write(file, ("{\"log\": {\"version\": \"1.2\", \"entries\": ["
+                + "{\"request\": {\"method\": \"GET\", \"url\": \"https://example.com/\"},"
+                + " \"response\": {\"status\": 200, \"content\": {\"text\": \"<html>\"}}},"
+                + "{\"request\": {\"method\": \"GET\", \"url\": \"https://example.com/a.png\"},"
+                + " \"response\": {\"status\": 200, \"content\": {\"_file\": \"abc.png\"}}}]}}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        HarArchive archive = HarArchive.load(file);
+        assertArrayEquals("<html>".getBytes(StandardCharsets.UTF_8),
+                archive.getBody(archive.find("GET", "https://example.com/").get()));
+        assertArrayEquals(new byte[] {4, 5, 6}, archive.getBody(archive.find("GET", "https://example.com/a.png").get()));
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NetworkModeTest {
+    @Test
+    public void getHarPath_noVariant_usesTestName() {
+        assertEquals(Paths.get("src/test/resources/har/NetworkModeTest/test.har"),
+                NetworkMode.getHarPath(NetworkModeTest.class, "test", null));
+    }
+
+    @Test
+    public void getHarPath_variants_useSeparateFiles() {
+        assertEquals(Paths.get("src/test/resources/har/NetworkModeTest/test-slow-5s.har"),
+                NetworkMode.getHarPath(NetworkModeTest.class, "test", "slow-5s"));
+        assertEquals(Paths.get("src/test/resources/har/NetworkModeTest/test-3g_to_4g.har"),
+                NetworkMode.getHarPath(NetworkModeTest.class, "test", "3g/to 4g"));
+    }
+}
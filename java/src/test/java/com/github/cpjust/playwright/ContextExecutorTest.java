@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContextExecutorTest {
+    // Sessions only borrow a browser when their first context is created, so these tests don't launch one.
+    private static ContextExecutor newExecutor(int maxContexts) {
+        return new ContextExecutor(new BrowserPool(1, new BrowserType.LaunchOptions()), 1, maxContexts,
+                new Browser.NewContextOptions(), Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void openSession_allContextsOpen_waitsForAClose() {
+        try (ContextExecutor executor = newExecutor(2)) {
+            ContextExecutor.Session first = executor.openSession().join();
+            ContextExecutor.Session second = executor.openSession().join();
+            CompletableFuture<ContextExecutor.Session> third = executor.openSession();
+
+            assertFalse(third.isDone());
+            first.close();
+            assertNotNull(third.join());
+            second.close();
+            third.join().close();
+        }
+    }
+
+    @Test
+    public void orchestrate_runsOffTheCallersThread() {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        try (ContextExecutor executor = newExecutor(1)) {
+            executor.orchestrate(() -> thread.set(Thread.currentThread())).join();
+        }
+
+        assertNotEquals(Thread.currentThread(), thread.get());
+        assertTrue(thread.get().isDaemon(), "Orchestration threads mustn't keep the JVM alive.");
+    }
+}
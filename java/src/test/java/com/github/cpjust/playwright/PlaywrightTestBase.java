@@ -15,66 +15,615 @@
  */
 package com.github.cpjust.playwright;
 
+import com.github.cpjust.artifacts.ArtifactWriter;
+import com.github.cpjust.artifacts.TestArtifacts;
+import com.github.cpjust.engine.PageDriver;
+import com.github.cpjust.engine.PlaywrightPageDriver;
+import com.github.cpjust.engine.SessionPageDriver;
+import com.github.cpjust.flaky.TestVariant;
+import com.github.cpjust.launch.LaunchProfile;
+import com.github.cpjust.launch.UserDataDirs;
+import com.github.cpjust.metrics.EngineComparison;
+import com.github.cpjust.metrics.PageMetrics;
+import com.github.cpjust.metrics.PageMetricsCollector;
+import com.github.cpjust.metrics.PageMetricsWriter;
+import com.github.cpjust.metrics.PerformanceBudgets;
+import com.github.cpjust.metrics.StepRunner;
+import com.github.cpjust.metrics.StepTimer;
+import com.github.cpjust.network.InterceptionProfile;
+import com.github.cpjust.network.InterceptionStats;
+import com.github.cpjust.network.NetworkEmulator;
+import com.github.cpjust.network.NetworkMode;
+import com.github.cpjust.network.NetworkProfiles;
+import com.github.cpjust.network.NetworkSchedule;
+import com.github.cpjust.results.ResultStream;
+import com.github.cpjust.results.ResultStreamListener;
+import com.github.cpjust.server.LocalSiteServer;
 import com.microsoft.playwright.Browser;
 import com.microsoft.playwright.BrowserContext;
 import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.CDPSession;
 import com.microsoft.playwright.Page;
-import com.microsoft.playwright.Playwright;
-import org.testng.annotations.AfterClass;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Route;
+import com.microsoft.playwright.options.HarNotFound;
+import com.microsoft.playwright.options.RouteFromHarUpdateContentPolicy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.testng.IHookCallBack;
+import org.testng.IHookable;
+import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
-import org.testng.annotations.BeforeClass;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
-public class PlaywrightTestBase {
-    protected Playwright playwright;
-    protected Browser browser;
-    protected BrowserContext browserContext;
-    protected Page page;
+/**
+ * Base class for Playwright tests.
+ * <p>
+ * Browsers come from a {@link BrowserPool} that is shared by every test class in the suite, so each test only pays for
+ * a new context.  The pool size can be set with the {@code playwright.pool.size} system property (defaults to the
+ * number of cores), and {@code playwright.pool.warm} sets how many browsers are launched before the first test.
+ * <p>
+ * The context and page are kept per thread, so tests must use {@link #getPage()} and {@link #getBrowserContext()}
+ * instead of holding on to them.  This makes it safe to run test methods with TestNG's {@code parallel="methods"}.
+ * <p>
+ * Requests the tests don't need can be aborted or stubbed with {@code -Dinterception.profile=<name>}.
+ * See {@link InterceptionProfile}.
+ * <p>
+ * With {@code -Dmetrics.enabled=true} the page's performance metrics are written after every test.
+ * See {@link PageMetricsWriter}.  With {@code -Dbudgets.enabled=true} tests that go over their performance budget
+ * fail.  See {@link PerformanceBudgets}.
+ * <p>
+ * With {@code -Dplaywright.executor=contexts} the tests share a {@link ContextExecutor} instead: each test gets a context
+ * on one of {@code playwright.context.browsers} browsers, at most {@code playwright.context.max} (defaults to 100)
+ * contexts are open at once, and the test methods run on virtual threads (on Java 21 and later).  TestNG's threads
+ * then only wait, so {@code testng.threadCount} can be raised to the number of contexts.  In this mode the tests must
+ * use {@link #getPageDriver()}, as the browser is driven by its own thread.
+ */
+@Slf4j
+public class PlaywrightTestBase implements StepRunner, TestVariant, IHookable {
+    private static final ThreadLocal<TestState> testState = new ThreadLocal<>();
+    private static final StorageStateSnapshots storageStateSnapshots = new StorageStateSnapshots(
+            Paths.get(System.getProperty("playwright.storage.state.dir", "target/storage-state")),
+            Duration.ofMinutes(Long.getLong("playwright.storage.state.max.age.minutes", 60)));
+    /**
+     * The cookies that tie a context to a server-side session, and through it to a cart, so they're never saved in a
+     * storage state snapshot.  Otherwise every context started from the snapshot would share one cart.
+     */
+    private static final Pattern SESSION_COOKIES = Pattern.compile(System.getProperty(
+            "playwright.storage.state.session.cookies",
+            "PHPSESSID|local_session|form_key|private_content_version|mage-cache-sessid"));
+    private static volatile BrowserPool browserPool;
+    private static volatile InterceptionProfile interceptionProfile;
+    private static volatile ContextExecutor contextExecutor;
+    /** The methods of this instance that have failed, so their reruns can be traced.  See {@link ArtifactWriter}. */
+    private final Set<String> failedMethods = ConcurrentHashMap.newKeySet();
+    private final NetworkSchedule networkSchedule;
 
-    @BeforeClass(alwaysRun = true)
-    public void beforePlaywrightTestBaseClass() {
-        playwright = Playwright.create();
-        BrowserType.LaunchOptions launchOptions = new BrowserType.LaunchOptions();
-        launchOptions.setHeadless(false);
-        launchOptions.setArgs(Collections.singletonList("--start-maximized"));
-        browser = playwright.chromium().launch(launchOptions);
+    /**
+     * For test classes that run their tests once.
+     */
+    protected PlaywrightTestBase() {
+        this(null);
+    }
+
+    /**
+     * For test classes whose {@code @Factory} creates one instance per network profile.  The profile is the instance's
+     * {@link TestVariant}, so each profile gets its own flaky history, test durations and HAR recordings.
+     *
+     * @param networkSchedule The network profile or schedule of this instance.
+     */
+    protected PlaywrightTestBase(NetworkSchedule networkSchedule) {
+        this.networkSchedule = networkSchedule;
+    }
+
+    @BeforeSuite(alwaysRun = true)
+    public void beforePlaywrightTestBaseSuite() throws IOException {
+        LocalSiteServer.startShared();
+
+        synchronized (PlaywrightTestBase.class) {
+            if (browserPool == null) {
+                interceptionProfile = InterceptionProfile.fromSystemProperties();
+                browserPool = createBrowserPool();
+
+                if ("contexts".equals(System.getProperty("playwright.executor", "pool"))) {
+                    contextExecutor = new ContextExecutor(browserPool,
+                            Integer.getInteger("playwright.context.browsers", 1),
+                            Integer.getInteger("playwright.context.max", 100), newContextOptions(), getLeaseTimeout());
+                }
+            }
+        }
     }
 
     @BeforeMethod
-    public void beforePlaywrightTestBaseMethod() {
+    public void beforePlaywrightTestBaseMethod(Method method) {
+        // Resolve the storage state before leasing, since capturing it needs a browser of its own.
+        Path storageState = getStorageStatePath();
+        Browser.NewContextOptions contextOptions = newContextOptions();
+
+        if (storageState != null) {
+            contextOptions.setStorageStatePath(storageState);
+        }
+
+        TestState state;
+
+        if (contextExecutor != null) {
+            ContextExecutor.Session session = contextExecutor.openSession(contextOptions).join();
+            state = new TestState(session.call(lease -> lease));
+            state.setSession(session);
+        } else {
+            state = new TestState(browserPool.lease(contextOptions, getLeaseTimeout()));
+        }
+
+        testState.set(state);
+        onBrowserThread(state, () -> setUpContext(method, state));
+    }
+
+    /**
+     * Runs the test method on a virtual thread when the tests share a {@link ContextExecutor}.
+     */
+    @Override
+    public void run(IHookCallBack callBack, ITestResult testResult) {
+        if (contextExecutor == null) {
+            callBack.runTestMethod(testResult);
+            return;
+        }
+
+        TestState state = testState.get();
+        contextExecutor.orchestrate(() -> {
+            testState.set(state);
+
+            try {
+                callBack.runTestMethod(testResult);
+            } finally {
+                testState.remove();
+            }
+        }).join();
+    }
+
+    private void setUpContext(Method method, TestState state) {
+        BrowserLease lease = state.getLease();
+        routeFromHar(lease.getBrowserContext(), method.getName(), getVariant());
+
+        if (interceptionProfile != null) {
+            state.setInterceptionStats(new InterceptionStats());
+            applyInterceptionProfile(lease.getBrowserContext(), state.getInterceptionStats());
+        }
+
+        if (PageMetricsWriter.isEnabled() || PerformanceBudgets.isEnabled()) {
+            state.setCollectingMetrics(true);
+            PageMetricsCollector.enable(state.getCdpSession());
+        }
+
+        if (ArtifactWriter.isEnabled()) {
+            state.setArtifacts(TestArtifacts.start(lease.getBrowserContext(), lease.getPage(),
+                    failedMethods.contains(method.getName())));
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void afterPlaywrightTestBaseMethod(Method method, ITestResult result) {
+        TestState state = testState.get();
+        testState.remove();
+
+        if (state == null) {
+            return;
+        }
+
+        try {
+            onBrowserThread(state, () -> tearDownContext(method, result, state));
+        } finally {
+            if (state.getSession() != null) {
+                state.getSession().close();
+            } else {
+                state.getLease().close();
+            }
+        }
+    }
+
+    private void tearDownContext(Method method, ITestResult result, TestState state) {
+        BrowserLease lease = state.getLease();
+
+        if (state.getInterceptionStats() != null) {
+            log.info("{} ({}): {}", method.getName(), interceptionProfile.getName(),
+                    state.getInterceptionStats().summarize(getTransfer(lease.getPage())));
+        }
+
+        if (state.isCollectingMetrics()) {
+            recordPageMetrics(method, result, state);
+        }
+
+        EngineComparison.getShared().add(getPageDriver(state).getEngine(), state.getStepTimer().getStepsMs());
+        recordResult(method, result, state);
+
+        if (!result.isSuccess()) {
+            failedMethods.add(method.getName());
+        }
+
+        if (state.getArtifacts() != null) {
+            state.getArtifacts().finish(getArtifactName(method, state), !result.isSuccess(), lease.getPage());
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void afterPlaywrightTestBaseSuite() {
+        synchronized (PlaywrightTestBase.class) {
+            if (contextExecutor != null) {
+                contextExecutor.close();
+                contextExecutor = null;
+            }
+
+            if (browserPool != null) {
+                browserPool.close();
+                browserPool = null;
+            }
+        }
+    }
+
+    /**
+     * @return The browser context of the test running on the current thread.
+     */
+    protected BrowserContext getBrowserContext() {
+        return getBrowserLease().getBrowserContext();
+    }
+
+    /**
+     * @return The page of the test running on the current thread.
+     */
+    protected Page getPage() {
+        return getBrowserLease().getPage();
+    }
+
+    /**
+     * Runs and times a step of the test.  Step times are written with the page metrics and can have a performance
+     * budget.  See {@link PerformanceBudgets}.
+     *
+     * @param name The step name, e.g. "navigate".
+     * @param step The step.
+     */
+    @Override
+    public void step(String name, Runnable step) {
+        StepRunner.super.step(name, step);
+    }
+
+    /**
+     * Runs and times a step of the test that returns a value.
+     *
+     * @param name The step name, e.g. "navigate".
+     * @param step The step.
+     * @param <T>  The type of the result.
+     * @return The step's result.
+     */
+    @Override
+    public <T> T step(String name, Supplier<T> step) {
+        TestState state = getTestState();
+        onBrowserThread(state, () -> {
+            if (state.getNetworkEmulator() != null) {
+                state.getNetworkEmulator().update();
+            }
+
+            if (state.getArtifacts() != null) {
+                state.getArtifacts().startStep(name);
+            }
+        });
+
+        return state.getStepTimer().time(name, step);
+    }
+
+    /**
+     * @return The network profile of this instance, or null if the test class doesn't run once per profile.
+     */
+    protected NetworkSchedule getNetworkSchedule() {
+        return networkSchedule;
+    }
+
+    @Override
+    public String getVariant() {
+        return networkSchedule == null ? null : networkSchedule.getName();
+    }
+
+    /**
+     * @return The engine-neutral driver for the current thread's page, for scenarios shared with the Selenium tests.
+     */
+    protected PageDriver getPageDriver() {
+        return getPageDriver(getTestState());
+    }
+
+    /**
+     * Emulates network conditions for the rest of the test.  A fixed profile is applied once; a time-varying schedule
+     * is updated on every request the page makes and at every {@link #step}.
+     *
+     * @param schedule The network profile or schedule.  See {@link NetworkProfiles}.
+     */
+    protected void emulateNetwork(NetworkSchedule schedule) {
+        TestState state = getTestState();
+        NetworkEmulator emulator = getPageDriver().emulateNetwork(schedule);
+        state.setNetworkEmulator(emulator);
+
+        if (schedule.isTimeVarying()) {
+            onBrowserThread(state, () -> state.getLease().getPage().onRequest(request -> emulator.update()));
+        }
+    }
+
+    /**
+     * Creates an executor that runs browser tasks concurrently on the suite's browser pool, e.g. to drive many contexts
+     * from one test.  The contexts share {@code playwright.context.browsers} pooled browsers (defaults to 1), so the pool
+     * needs that many browsers free besides the test's own; see {@link ContextExecutor}.
+     *
+     * @param maxContexts The maximum number of contexts open at once.
+     * @return The executor, which must be closed when the tasks are done.
+     */
+    protected ContextExecutor newContextExecutor(int maxContexts) {
+        return new ContextExecutor(browserPool, Integer.getInteger("playwright.context.browsers", 1), maxContexts,
+                newContextOptions(), getLeaseTimeout());
+    }
+
+    /**
+     * Override this to start every test's context from a saved storage state instead of an empty one.
+     *
+     * @return The storage state file to start from, or null for an empty context.
+     * @see #snapshotStorageState(String, String, Consumer)
+     */
+    protected Path getStorageStatePath() {
+        return null;
+    }
+
+    /**
+     * Runs an expensive setup (e.g. navigating, accepting cookies or logging in) once in a fresh context and saves the
+     * resulting cookies and local storage, or reuses the saved state if the fingerprint hasn't changed.  Session and
+     * cart cookies (the {@code playwright.storage.state.session.cookies} regex) are left out, so every test still
+     * gets a session of its own.  The snapshots are saved in {@code playwright.storage.state.dir} (defaults to
+     * {@code target/storage-state}) and expire after {@code playwright.storage.state.max.age.minutes} (defaults to 60).
+     *
+     * @param name        A readable name for the snapshot.
+     * @param fingerprint The fingerprint of everything the setup depends on.
+     * @param setup       The setup to run on a new page.
+     * @return The storage state file.
+     */
+    protected Path snapshotStorageState(String name, String fingerprint, Consumer<Page> setup) {
+        // The excluded cookies are part of the fingerprint, so changing them replaces the old snapshots.
+        String snapshotFingerprint = StorageStateSnapshots.fingerprint(fingerprint, SESSION_COOKIES.pattern());
+
+        return storageStateSnapshots.getOrCapture(name, snapshotFingerprint, path -> {
+            try (BrowserLease lease = browserPool.lease(newContextOptions(), getLeaseTimeout())) {
+                // The snapshot is shared by all the variants, so its recording is too.
+                routeFromHar(lease.getBrowserContext(), name + "-storage-state", null);
+                setup.accept(lease.getPage());
+                lease.getBrowserContext().clearCookies(new BrowserContext.ClearCookiesOptions().setName(SESSION_COOKIES));
+                lease.getBrowserContext().storageState(new BrowserContext.StorageStateOptions().setPath(path));
+            }
+        });
+    }
+
+    /**
+     * Records or replays the context's traffic through a HAR file, depending on the {@code network.mode} system
+     * property.  See {@link NetworkMode}.
+     */
+    private void routeFromHar(BrowserContext browserContext, String testName, String variant) {
+        NetworkMode networkMode = NetworkMode.fromSystemProperties();
+
+        if (networkMode == NetworkMode.LIVE) {
+            return;
+        }
+
+        Path harPath = NetworkMode.getHarPath(getClass(), testName, variant);
+
+        if (networkMode == NetworkMode.REPLAY && !Files.isRegularFile(harPath)) {
+            throw new IllegalStateException("No HAR recording at " + harPath + "!  Run once with -Dnetwork.mode=record first.");
+        }
+
+        // NOTE: In record mode Playwright writes the HAR file when the context is closed.
+        BrowserContext.RouteFromHAROptions harOptions = new BrowserContext.RouteFromHAROptions();
+        harOptions.setUpdate(networkMode == NetworkMode.RECORD);
+        harOptions.setUpdateContent(RouteFromHarUpdateContentPolicy.EMBED);
+        harOptions.setNotFound(networkMode == NetworkMode.REPLAY ? HarNotFound.ABORT : HarNotFound.FALLBACK);
+        browserContext.routeFromHAR(harPath, harOptions);
+    }
+
+    /**
+     * Aborts or stubs the requests the interception profile doesn't want.  This is registered after the HAR route, so
+     * it runs first and falls back to the HAR route for allowed requests.
+     */
+    private static void applyInterceptionProfile(BrowserContext browserContext, InterceptionStats stats) {
+        browserContext.route("**/*", route -> {
+            Request request = route.request();
+            InterceptionProfile.Action action = interceptionProfile.getAction(request.resourceType(), request.url());
+            stats.record(action, request.resourceType());
+
+            switch (action) {
+                case BLOCK:
+                    route.abort("blockedbyclient");
+                    break;
+                case STUB:
+                    route.fulfill(new Route.FulfillOptions().setStatus(200).setBody(""));
+                    break;
+                default:
+                    route.fallback();
+                    break;
+            }
+        });
+    }
+
+    private static List<?> getTransfer(Page page) {
+        try {
+            return (List<?>) page.evaluate(InterceptionStats.TRANSFER_SCRIPT);
+        } catch (RuntimeException e) {
+            log.debug("Failed to read the transferred bytes.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Streams the test's steps and result, and feeds them to the live aggregator.  See {@link ResultStream}.
+     */
+    private void recordResult(Method method, ITestResult result, TestState state) {
+        ResultStream stream = ResultStream.getShared();
+        Long bytes = stream.isEnabled() ? InterceptionStats.getBytes(getTransfer(state.getLease().getPage())) : null;
+        NetworkEmulator emulator = state.getNetworkEmulator();
+        stream.recordTest(getClass().getSimpleName() + "." + method.getName(), getPageDriver(state).getEngine(),
+                emulator == null ? null : emulator.getSchedule().getName(), state.getStepTimer().getTimings(),
+                result.getStartMillis(), result.getEndMillis() - result.getStartMillis(),
+                ResultStreamListener.getStatus(result), result.getThrowable(), bytes);
+    }
+
+    /**
+     * Writes the test's page metrics and fails the test if they're over the performance budget.
+     */
+    private void recordPageMetrics(Method method, ITestResult result, TestState state) {
+        String test = getClass().getSimpleName() + "." + method.getName();
+        PageMetrics metrics;
+
+        try {
+            metrics = PageMetricsCollector.collect(state.getLease().getPage(), state.getCdpSession());
+        } catch (RuntimeException e) {
+            log.warn("Failed to collect the page metrics of {}", test, e);
+            return;
+        }
+
+        metrics.setTest(test);
+        metrics.getStepsMs().putAll(state.getStepTimer().getStepsMs());
+
+        if (state.getNetworkEmulator() != null) {
+            metrics.getLabels().put("network", state.getNetworkEmulator().getSchedule().getName());
+        }
+
+        if (PageMetricsWriter.isEnabled()) {
+            PageMetricsWriter.getShared().write(metrics);
+        }
+
+        if (PerformanceBudgets.isEnabled() && result.isSuccess()) {
+            String failure = PerformanceBudgets.getShared().enforce(test, metrics);
+
+            if (failure != null) {
+                result.setStatus(ITestResult.FAILURE);
+                result.setThrowable(new AssertionError(failure));
+            }
+        }
+    }
+
+    private BrowserLease getBrowserLease() {
+        TestState state = getTestState();
+
+        if (state.getSession() != null) {
+            throw new IllegalStateException("The page is driven by its browser's thread with -Dplaywright.executor="
+                    + "contexts, so use getPageDriver() instead!");
+        }
+
+        return state.getLease();
+    }
+
+    /**
+     * Runs work that uses the test's page on the thread that owns the page's browser.
+     */
+    private static void onBrowserThread(TestState state, Runnable work) {
+        if (state.getSession() == null) {
+            work.run();
+            return;
+        }
+
+        state.getSession().call(lease -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return The name of the test's artifacts zip, including the network profile since every profile runs each test.
+     */
+    private String getArtifactName(Method method, TestState state) {
+        String name = getClass().getSimpleName() + "." + method.getName();
+        return state.getNetworkEmulator() == null ? name : name + "-" + state.getNetworkEmulator().getSchedule().getName();
+    }
+
+    private static PageDriver getPageDriver(TestState state) {
+        if (state.getSession() != null) {
+            return new SessionPageDriver(state.getSession(), Duration.ofSeconds(30));
+        }
+
+        return new PlaywrightPageDriver(state.getLease().getPage(), state::getCdpSession);
+    }
+
+    private TestState getTestState() {
+        TestState state = testState.get();
+
+        if (state == null) {
+            throw new IllegalStateException("No browser is leased on thread '" + Thread.currentThread().getName()
+                    + "'!  The page is only available between @BeforeMethod and @AfterMethod.");
+        }
+
+        return state;
+    }
+
+    private static Browser.NewContextOptions newContextOptions() {
         // NOTE: To maximize the browser, we need to set the viewport size to null.
         // See: https://stackoverflow.com/questions/77278023/how-to-maximize-the-window-size-in-playwright
         Browser.NewContextOptions contextOptions = new Browser.NewContextOptions();
         contextOptions.setViewportSize(null);
-        browserContext = browser.newContext(contextOptions);
-        page = browserContext.newPage();
+        return contextOptions;
     }
 
-    @AfterMethod
-    public void afterPlaywrightTestBaseMethod() {
-        if (page != null) {
-            page.close();
-            page = null;
-        }
+    private static Duration getLeaseTimeout() {
+        return Duration.ofSeconds(Long.getLong("playwright.pool.lease.timeout.seconds", 300));
+    }
 
-        if (browserContext != null) {
-            browserContext.close();
-            browserContext = null;
+    /**
+     * Creates the browser pool shared by every test class in the suite, launching with the {@code launch.profile} system
+     * property's flags.  See {@link LaunchProfile}.
+     */
+    private static BrowserPool createBrowserPool() {
+        LaunchProfile launchProfile = LaunchProfile.fromSystemProperties();
+        BrowserType.LaunchOptions launchOptions = launchProfile.toPlaywrightOptions();
+        log.info("Launching Chromium with the '{}' profile.", launchProfile.getName());
+
+        if (UserDataDirs.fromSystemProperties() != null) {
+            // Playwright rejects --user-data-dir, and its contexts are incognito, so they wouldn't use the cache anyway.
+            log.warn("launch.user.data.dir only applies to the Selenium tests.");
         }
+
+        int poolSize = Integer.getInteger("playwright.pool.size", Runtime.getRuntime().availableProcessors());
+        BrowserPool pool = new BrowserPool(poolSize, launchOptions);
+        pool.warmUp(Integer.getInteger("playwright.pool.warm", 1));
+        return pool;
     }
 
-    @AfterClass(alwaysRun = true)
-    public void afterPlaywrightTestBaseClass() {
-        if (browser != null) {
-            browser.close();
-            browser = null;
-        }
+    /**
+     * Everything that belongs to the test running on one thread.
+     */
+    @Data
+    private static class TestState {
+        private final BrowserLease lease;
+        /** The session the lease belongs to, when the tests share a {@link ContextExecutor}. */
+        private ContextExecutor.Session session;
+        private InterceptionStats interceptionStats;
+        private CDPSession cdpSession;
+        private boolean collectingMetrics;
+        private NetworkEmulator networkEmulator;
+        private StepTimer stepTimer = new StepTimer();
+        private TestArtifacts artifacts;
+
+        /**
+         * @return The CDP session of the page, created on first use and shared by everything that needs one.
+         */
+        CDPSession getCdpSession() {
+            if (cdpSession == null) {
+                cdpSession = lease.getBrowserContext().newCDPSession(lease.getPage());
+            }
 
-        if (playwright != null) {
-            playwright.close();
-            playwright = null;
+            return cdpSession;
         }
     }
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.playwright.load;
+
+import com.github.cpjust.engine.SessionPageDriver;
+import com.github.cpjust.load.LoadGenerator;
+import com.github.cpjust.load.LoadProfile;
+import com.github.cpjust.load.LoadResult;
+import com.github.cpjust.playwright.ContextExecutor;
+import com.github.cpjust.playwright.PlaywrightTestBase;
+import com.github.cpjust.scenarios.EchoFirCompressionShortScenarios;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Runs the add-to-cart scenario as a browser-level load test.  Only runs with the {@code load} Maven profile:
+ * <pre>
+ * mvn test -Pload -Dsite.mode=local -Dload.users=200 -Dplaywright.context.browsers=4 -Dplaywright.pool.size=5
+ * </pre>
+ * The load is set by the {@link LoadProfile#fromSystemProperties() load.*} system properties.  Each user gets its own
+ * context on one of {@code playwright.context.browsers} shared browsers, and drives it through a
+ * {@link SessionPageDriver}, so all the users' flows run at the same time.  The browsers come from the pool, and the test
+ * itself holds one, so {@code playwright.pool.size} should be more than {@code playwright.context.browsers}.  The latency
+ * percentiles of every step are written to {@code load.results.dir} (defaults to {@code target/load}) as {@code .hgrm}
+ * files.
+ */
+@Slf4j
+public class AddToCartLoadTest extends PlaywrightTestBase {
+    @Test
+    public void addToCart_underLoad_verifyErrorRate() throws IOException {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        LoadResult result;
+
+        try (ContextExecutor executor = newContextExecutor(profile.getUsers())) {
+            result = new LoadGenerator(executor, profile).run((session, steps) -> {
+                SessionPageDriver pageDriver = new SessionPageDriver(session, Duration.ofSeconds(30));
+                EchoFirCompressionShortScenarios scenarios = new EchoFirCompressionShortScenarios(pageDriver, steps);
+                scenarios.navigate();
+                scenarios.addToCart_selectValidOptions_verifyAddedToCart();
+            });
+        }
+
+        result.log();
+        result.write(Paths.get(System.getProperty("load.results.dir", "target/load")));
+
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.max.error.rate", "0.01"));
+        Assertions.assertTrue(result.getErrorRate() <= maxErrorRate, String.format("Error rate %.1f%% is over %.1f%%!",
+                result.getErrorRate() * 100, maxErrorRate * 100));
+    }
+}
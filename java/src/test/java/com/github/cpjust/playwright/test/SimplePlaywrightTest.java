@@ -15,144 +15,87 @@
  */
 package com.github.cpjust.playwright.test;
 
-import com.github.cpjust.constants.EchoFirCompressionShortKeys;
+import com.github.cpjust.network.NetworkProfiles;
+import com.github.cpjust.network.NetworkSchedule;
 import com.github.cpjust.playwright.PlaywrightTestBase;
-import com.github.cpjust.util.PropertyReader;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.microsoft.playwright.Browser;
-import com.microsoft.playwright.Locator;
-import lombok.Data;
+import com.github.cpjust.playwright.StorageStateSnapshots;
+import com.github.cpjust.scenarios.EchoFirCompressionShortScenarios;
+import com.github.cpjust.sharding.ShardGroup;
 import lombok.extern.slf4j.Slf4j;
-import org.junit.jupiter.api.Assertions;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
-import java.util.Properties;
+import java.nio.file.Path;
 
 @Slf4j
+@ShardGroup("EchoFirCompressionShort")
 public class SimplePlaywrightTest extends PlaywrightTestBase {
-    private Properties properties;
+    private String storageStateFingerprint;
+
+    /**
+     * Runs every test once per network profile in the {@code network.profiles} system property (defaults to the
+     * {@code slow-5s} profile).
+     */
+    @Factory(dataProvider = "networkProfiles")
+    public SimplePlaywrightTest(NetworkSchedule networkSchedule) {
+        super(networkSchedule);
+    }
+
+    @DataProvider
+    public static Object[][] networkProfiles() {
+        return NetworkProfiles.getMatrix(NetworkProfiles.SLOW_5S.getName()).stream()
+                .map(schedule -> new Object[] {schedule})
+                .toArray(Object[][]::new);
+    }
 
     @BeforeClass(alwaysRun = true)
     public void beforeClass() throws IOException {
-        PropertyReader propertyReader = new PropertyReader();
-        properties = propertyReader.getPropertiesFromResources("locators/magento.softwaretestingboard.com/EchoFirCompressionShort.properties");
+        storageStateFingerprint = StorageStateSnapshots.fingerprint(
+                StorageStateSnapshots.fingerprintResource(EchoFirCompressionShortScenarios.LOCATORS.getResourceName()),
+                EchoFirCompressionShortScenarios.getProductUrl());
+    }
+
+    /**
+     * Starts every test with the cookies and local storage the site sets on the first visit, so the page doesn't have
+     * to set up the session and customer data again in every test.
+     */
+    @Override
+    protected Path getStorageStatePath() {
+        return snapshotStorageState("EchoFirCompressionShort", storageStateFingerprint,
+                page -> page.navigate(EchoFirCompressionShortScenarios.getProductUrl()));
     }
 
     @BeforeMethod
     public void beforeMethod() {
-        // NOTE: To maximize the browser, we need to set the viewport size to null.
-        // See: https://stackoverflow.com/questions/77278023/how-to-maximize-the-window-size-in-playwright
-        Browser.NewContextOptions contextOptions = new Browser.NewContextOptions();
-        contextOptions.setViewportSize(null);
-        browserContext = browser.newContext(contextOptions);
-        page = browserContext.newPage();
-        page.navigate(properties.getProperty(EchoFirCompressionShortKeys.URL));
+        scenarios().navigate();
 
         // Throttle the network speed.
-        setNetworkConditions(10000, -1, 5000, false);
+        emulateNetwork(getNetworkSchedule());
     }
 
     @Test
     public void checkProductInfo_verifyTitleAndPrice() {
-        String title = page.textContent(properties.getProperty(EchoFirCompressionShortKeys.PAGE_TITLE))
-                .trim();
-        String availability = page.textContent(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_AVAILABILITY))
-                .trim();
-        String price = page.textContent(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_PRICE));
-
-        Assertions.assertEquals("Echo Fit Compression Short", title, "Wrong title!");
-        Assertions.assertEquals("In stock", availability, "Wrong availability!");
-        Assertions.assertEquals("$24.00", price, "Wrong title!");
+        scenarios().checkProductInfo_verifyTitleAndPrice();
     }
 
     @Test
     public void addToCart_verifyReqiredFieldValidationErrors() {
-        page.click(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_ADD_TO_CART_BUTTON));
-        String sizeError = page.textContent(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_SIZE_VALIDATION_ERROR))
-                .trim();
-        String colorError = page.textContent(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_COLOR_VALIDATION_ERROR))
-                .trim();
-
-        final String expectedRequiredFieldError = "This is a required field.";
-        Assertions.assertEquals(expectedRequiredFieldError, sizeError, "Wrong size error!");
-        Assertions.assertEquals(expectedRequiredFieldError, colorError, "Wrong color error!");
+        scenarios().addToCart_verifyReqiredFieldValidationErrors();
     }
 
     @Test
     public void addToCart_selectValidOptions_verifyAddedToCart() {
-        Locator sizeLocator = page.locator(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_SIZES))
-                .first();
-        Locator colorLocator = page.locator(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_COLORS))
-                .first();
-        sizeLocator.click();
-        colorLocator.click();
-        page.click(properties.getProperty(EchoFirCompressionShortKeys.PRODUCT_ADD_TO_CART_BUTTON));
-
-        Locator messageLocator = page.locator(properties.getProperty(EchoFirCompressionShortKeys.PAGE_SUCCESS_MESSAGE))
-                .first();
-
-        String successMessage = messageLocator.textContent()
-                .trim();
-
-        String cartItems = page.textContent(properties.getProperty(EchoFirCompressionShortKeys.PAGE_MINI_CART_COUNTER))
-                .trim();
-
-        final String expectedMessage = "You added Echo Fit Compression Short to your shopping cart.";
-        Assertions.assertEquals(expectedMessage, successMessage, "Wrong success message!");
-        Assertions.assertEquals("1", cartItems, "Wrong cart size!");
-    }
-
-    /**
-     * Sets the network conditions to throttle the network calls.
-     * See: https://tomatoqa.com/blog/stimulate-network-throttling-in-playwright-typescript-javascript/
-     *
-     * @param downloadThroughput The throughput of the network connection in kb/second for downloading.
-     * @param uploadThroughput   The throughput of the network connection in kb/second for uploading.
-     * @param latency            The simulated latency of the connection.
-     * @param isOffline          Whether the network is set to offline.  Defaults to false.
-     */
-    private void setNetworkConditions(Integer downloadThroughput, Integer uploadThroughput, Integer latency, Boolean isOffline) {
-        NetworkConditions networkConditions = new NetworkConditions();
-
-        if (downloadThroughput != null) {
-            networkConditions.setDownloadThroughput(downloadThroughput);
-        }
-
-        if (uploadThroughput != null) {
-            networkConditions.setUploadThroughput(uploadThroughput);
-        }
-
-        if (latency != null) {
-            networkConditions.setLatency(latency);
-        }
-
-        if (isOffline != null) {
-            networkConditions.setOffline(isOffline);
-        }
-
-        Gson gson = new Gson();
-        String json = gson.toJson(networkConditions);
-        log.info("*** JSON = {}", json);
-
-        JsonObject jsonObject = JsonParser.parseString(json)
-                .getAsJsonObject();
-
-        browserContext.newCDPSession(page).send("Network.emulateNetworkConditions", jsonObject);
+        scenarios().addToCart_selectValidOptions_verifyAddedToCart();
     }
 
     /**
-     * This object gets passed to the 'Network.emulateNetworkConditions' Chrome CDP session.
+     * @return The scenarios for the current thread's page.  Test methods can run in parallel, so they're not kept.
      */
-    @Data
-    public static class NetworkConditions {
-        private Integer downloadThroughput;
-        private Integer uploadThroughput;
-        private Integer latency;
-        private Boolean offline;
+    private EchoFirCompressionShortScenarios scenarios() {
+        return new EchoFirCompressionShortScenarios(getPageDriver(), this);
     }
 }
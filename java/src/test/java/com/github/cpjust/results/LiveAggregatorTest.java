@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LiveAggregatorTest {
+    @Test
+    public void record_windowNotFull_doesNotAbort() {
+        LiveAggregator aggregator = new LiveAggregator(0.5, 4);
+
+        aggregator.record("Test.a", 100, "failed");
+        aggregator.record("Test.b", 100, "failed");
+        aggregator.record("Test.c", 100, "failed");
+
+        assertFalse(aggregator.isAborted());
+        assertEquals(1.0, aggregator.getWindowFailureRate());
+    }
+
+    @Test
+    public void record_failureRateReachedOverFullWindow_aborts() {
+        LiveAggregator aggregator = new LiveAggregator(0.5, 4);
+
+        aggregator.record("Test.a", 100, "passed");
+        aggregator.record("Test.b", 100, "failed");
+        aggregator.record("Test.c", 100, "passed");
+        aggregator.record("Test.d", 100, "failed");
+
+        assertTrue(aggregator.isAborted());
+        assertEquals("2 of the last 4 tests failed (abort at 50%)", aggregator.getAbortReason());
+    }
+
+    @Test
+    public void record_oldFailuresSlideOutOfWindow_onlyCountsRecentTests() {
+        LiveAggregator aggregator = new LiveAggregator(1, 3);
+
+        for (String status : new String[] {"failed", "failed", "passed", "failed", "failed"}) {
+            aggregator.record("Test.a", 100, status);
+            assertFalse(aggregator.isAborted());
+        }
+
+        aggregator.record("Test.a", 100, "failed");
+        assertTrue(aggregator.isAborted());
+    }
+
+    @Test
+    public void record_skipped_isLeftOutOfWindowAndAttempts() {
+        LiveAggregator aggregator = new LiveAggregator(0.5, 2);
+
+        aggregator.record("Test.a [4g]", 100, "passed");
+        aggregator.record("Test.a [4g]", 0, "skipped");
+        aggregator.record("Test.a [4g]", 0, "skipped");
+
+        assertEquals(0.0, aggregator.getWindowFailureRate());
+        assertEquals(2, aggregator.getNextAttempt("Test.a [4g]"));
+        assertEquals(1, aggregator.getNextAttempt("Test.a [slow-5s]"));
+        assertEquals(1L, aggregator.snapshot().getTests());
+    }
+
+    @Test
+    public void record_noAbortRate_neverAborts() {
+        LiveAggregator aggregator = new LiveAggregator(0, 1);
+
+        aggregator.record("Test.a", 100, "failed");
+
+        assertFalse(aggregator.isAborted());
+    }
+}
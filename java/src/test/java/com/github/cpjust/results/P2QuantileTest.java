@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class P2QuantileTest {
+    @ParameterizedTest
+    @CsvSource({
+            "0.5, 1, 7",
+            "0.9, 1, 7",
+            "0.5, 2, 7",
+            "0.9, 2, 7",
+            "0.5, 3, 7",
+            "0.9, 3, 9",
+            "0.5, 5, 5",
+            "0.9, 5, 9",
+            "0.99, 5, 9",
+    })
+    public void get_fiveValuesOrFewer_returnsNearestRank(double quantile, int count, double expected) {
+        P2Quantile estimator = new P2Quantile(quantile);
+
+        for (double value : Arrays.copyOf(new double[] {7, 3, 9, 1, 5}, count)) {
+            estimator.add(value);
+        }
+
+        assertEquals(expected, estimator.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.5, 0.9, 0.99})
+    public void get_uniformValues_isCloseToExactQuantile(double quantile) {
+        Random random = new Random(42);
+        double[] values = new double[20_000];
+        P2Quantile estimator = new P2Quantile(quantile);
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 1000;
+            estimator.add(values[i]);
+        }
+
+        // Within 1% of the range.
+        assertEquals(exact(values, quantile), estimator.get(), 10);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.5, 0.9, 0.99})
+    public void get_longTailedValues_isCloseToExactQuantile(double quantile) {
+        Random random = new Random(42);
+        double[] values = new double[20_000];
+        P2Quantile estimator = new P2Quantile(quantile);
+
+        for (int i = 0; i < values.length; i++) {
+            // Exponential, like response times.
+            values[i] = -200 * Math.log(1 - random.nextDouble());
+            estimator.add(values[i]);
+        }
+
+        double expected = exact(values, quantile);
+        assertTrue(Math.abs(estimator.get() - expected) <= expected * 0.05,
+                "Estimated " + estimator.get() + " but the exact quantile is " + expected);
+    }
+
+    @Test
+    public void get_noValues_returnsNaN() {
+        assertTrue(Double.isNaN(new P2Quantile(0.5).get()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, 1, -0.5, 1.5})
+    public void new_quantileOutOfRange_throws(double quantile) {
+        assertThrows(IllegalArgumentException.class, () -> new P2Quantile(quantile));
+    }
+
+    private static double exact(double[] values, double quantile) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.round(quantile * (sorted.length - 1))];
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.results;
+
+import com.github.cpjust.flaky.FlakyRetryAnalyzer;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+
+/**
+ * Skips the rest of the suite once the {@link LiveAggregator} has aborted the run because of a spike in the failure
+ * rate, and logs the aggregated results at the end.
+ * <p>
+ * Registered with TestNG through {@code META-INF/services}.  The test base classes stream the results themselves,
+ * since only they know each test's steps, engine and network profile.  See {@link ResultStream}.
+ */
+public class ResultStreamListener implements IInvokedMethodListener, ISuiteListener {
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        LiveAggregator aggregator = LiveAggregator.getShared();
+
+        // Skip the @BeforeMethods too, so an aborted test doesn't lease a browser first.
+        if (aggregator.isAborted()
+                && (method.isTestMethod() || method.getTestMethod().isBeforeMethodConfiguration())) {
+            throw new SkipException("The run was aborted: " + aggregator.getAbortReason());
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        // The results are recorded by the test base classes.
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+        // Nothing to do before the suite.
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        LiveAggregator.getShared().logSummary(10);
+    }
+
+    /**
+     * @param result The result of a test.
+     * @return The test's status in a {@link ResultRecord}.  A failure that's being retried is reported as failed, and the
+     * retry as the next attempt.
+     */
+    public static String getStatus(ITestResult result) {
+        switch (result.getStatus()) {
+            case ITestResult.SUCCESS:
+                return "passed";
+            case ITestResult.SKIP:
+                return result.getAttribute(FlakyRetryAnalyzer.RETRIED_ATTRIBUTE) != null ? "failed" : "skipped";
+            default:
+                return "failed";
+        }
+    }
+}
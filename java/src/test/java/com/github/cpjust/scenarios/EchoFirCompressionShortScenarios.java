@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.scenarios;
+
+import com.github.cpjust.constants.EchoFirCompressionShortKeys;
+import com.github.cpjust.engine.PageDriver;
+import com.github.cpjust.locators.LocatorRegistry;
+import com.github.cpjust.metrics.StepRunner;
+import com.github.cpjust.server.LocalSiteServer;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.Map;
+
+/**
+ * The Echo Fit Compression Short scenarios, written once against {@link PageDriver} and run by both the Playwright and
+ * the Selenium tests, so their step times can be compared.
+ */
+public class EchoFirCompressionShortScenarios {
+    public static final LocatorRegistry<EchoFirCompressionShortKeys> LOCATORS = LocatorRegistry.of(EchoFirCompressionShortKeys.class);
+
+    private final PageDriver pageDriver;
+    private final StepRunner steps;
+
+    /**
+     * @param pageDriver The driver of the current test.
+     * @param steps      Times the steps, normally the test itself.
+     */
+    public EchoFirCompressionShortScenarios(PageDriver pageDriver, StepRunner steps) {
+        this.pageDriver = pageDriver;
+        this.steps = steps;
+    }
+
+    /**
+     * @return The product page URL, pointed at the local site server when running with {@code -Dsite.mode=local}.
+     */
+    public static String getProductUrl() {
+        return LocalSiteServer.resolveUrl(LOCATORS.get(EchoFirCompressionShortKeys.URL));
+    }
+
+    public void navigate() {
+        steps.step("navigate", () -> pageDriver.navigate(getProductUrl()));
+    }
+
+    public void checkProductInfo_verifyTitleAndPrice() {
+        // The price is the last of the three to render, so wait for it and then read everything in one round trip.
+        pageDriver.waitFor(LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_PRICE));
+        Map<EchoFirCompressionShortKeys, String> values = pageDriver.read(LOCATORS.batch()
+                .text(EchoFirCompressionShortKeys.PAGE_TITLE)
+                .textContent(EchoFirCompressionShortKeys.PRODUCT_AVAILABILITY)
+                .text(EchoFirCompressionShortKeys.PRODUCT_PRICE));
+        String title = values.get(EchoFirCompressionShortKeys.PAGE_TITLE)
+                .trim();
+        String availability = values.get(EchoFirCompressionShortKeys.PRODUCT_AVAILABILITY)
+                .trim();
+        String price = values.get(EchoFirCompressionShortKeys.PRODUCT_PRICE);
+
+        Assertions.assertEquals("Echo Fit Compression Short", title, "Wrong title!");
+        Assertions.assertEquals("In stock", availability, "Wrong availability!");
+        Assertions.assertEquals("$24.00", price, "Wrong title!");
+    }
+
+    public void addToCart_verifyReqiredFieldValidationErrors() {
+        pageDriver.click(LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_ADD_TO_CART_BUTTON));
+        pageDriver.waitFor(LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_SIZE_VALIDATION_ERROR),
+                LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_COLOR_VALIDATION_ERROR));
+        Map<EchoFirCompressionShortKeys, String> errors = pageDriver.read(LOCATORS.batch()
+                .text(EchoFirCompressionShortKeys.PRODUCT_SIZE_VALIDATION_ERROR)
+                .text(EchoFirCompressionShortKeys.PRODUCT_COLOR_VALIDATION_ERROR));
+        String sizeError = errors.get(EchoFirCompressionShortKeys.PRODUCT_SIZE_VALIDATION_ERROR)
+                .trim();
+        String colorError = errors.get(EchoFirCompressionShortKeys.PRODUCT_COLOR_VALIDATION_ERROR)
+                .trim();
+
+        final String expectedRequiredFieldError = "This is a required field.";
+        Assertions.assertEquals(expectedRequiredFieldError, sizeError, "Wrong size error!");
+        Assertions.assertEquals(expectedRequiredFieldError, colorError, "Wrong color error!");
+    }
+
+    public void addToCart_selectValidOptions_verifyAddedToCart() {
+        steps.step("select-options", () -> {
+            pageDriver.click(LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_SIZES));
+            pageDriver.click(LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_COLORS));
+        });
+
+        String messageSelector = LOCATORS.get(EchoFirCompressionShortKeys.PAGE_SUCCESS_MESSAGE);
+        String addToCartSelector = LOCATORS.get(EchoFirCompressionShortKeys.PRODUCT_ADD_TO_CART_BUTTON);
+        steps.step("add-to-cart", () -> pageDriver.click(addToCartSelector));
+        steps.step("success-message", () -> pageDriver.waitFor(messageSelector));
+
+        String successMessage = pageDriver.readTextContent(messageSelector)
+                .trim();
+        String cartItems = pageDriver.readTextContent(LOCATORS.get(EchoFirCompressionShortKeys.PAGE_MINI_CART_COUNTER))
+                .trim();
+
+        final String expectedMessage = "You added Echo Fit Compression Short to your shopping cart.";
+        Assertions.assertEquals(expectedMessage, successMessage, "Wrong success message!");
+        Assertions.assertEquals("1", cartItems, "Wrong cart size!");
+    }
+}
@@ -16,67 +16,342 @@
 
 package com.github.cpjust.selenium;
 
+import com.github.cpjust.artifacts.ArtifactWriter;
+import com.github.cpjust.artifacts.TestArtifacts;
+import com.github.cpjust.engine.PageDriver;
+import com.github.cpjust.engine.SeleniumPageDriver;
+import com.github.cpjust.flaky.TestVariant;
+import com.github.cpjust.launch.LaunchProfile;
+import com.github.cpjust.launch.UserDataDirs;
+import com.github.cpjust.metrics.EngineComparison;
+import com.github.cpjust.metrics.PageMetrics;
+import com.github.cpjust.metrics.PageMetricsCollector;
+import com.github.cpjust.metrics.PageMetricsWriter;
+import com.github.cpjust.metrics.PerformanceBudgets;
+import com.github.cpjust.metrics.StepRunner;
+import com.github.cpjust.metrics.StepTimer;
+import com.github.cpjust.network.InterceptionProfile;
+import com.github.cpjust.network.InterceptionStats;
+import com.github.cpjust.network.NetworkEmulator;
+import com.github.cpjust.network.NetworkMode;
+import com.github.cpjust.network.NetworkProfiles;
+import com.github.cpjust.network.NetworkSchedule;
+import com.github.cpjust.results.ResultStream;
+import com.github.cpjust.results.ResultStreamListener;
+import com.github.cpjust.server.LocalSiteServer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.output.NullOutputStream;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.remote.service.DriverService;
+import org.testng.ITestResult;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
  * Base class for Selenium tests.
  */
 @Slf4j
-public class SeleniumTestBase {
+public class SeleniumTestBase implements StepRunner, TestVariant {
+    private static volatile ChromeDriverPool driverPool;
+
     protected WebDriver driver;
-    protected ChromeOptions chromeOptions;
-    protected ChromeDriverService chromeDriverService;
+    private DriverLease driverLease;
+    private HarNetworkInterceptor harNetworkInterceptor;
+    private InterceptionProfile interceptionProfile;
+    private StepTimer stepTimer;
+    private NetworkEmulator networkEmulator;
+    protected SmartWait smartWait;
+    private PageDriver pageDriver;
+    private TestArtifacts artifacts;
+    private final NetworkSchedule networkSchedule;
+
+    /**
+     * For test classes that run their tests once.
+     */
+    protected SeleniumTestBase() {
+        this(null);
+    }
+
+    /**
+     * For test classes whose {@code @Factory} creates one instance per network profile.  The profile is the instance's
+     * {@link TestVariant}, so each profile gets its own flaky history, test durations and HAR recordings.
+     *
+     * @param networkSchedule The network profile or schedule of this instance.
+     */
+    protected SeleniumTestBase(NetworkSchedule networkSchedule) {
+        this.networkSchedule = networkSchedule;
+    }
 
     @BeforeClass
-    public void beforeSeleniumTestBaseClass() {
+    public void beforeSeleniumTestBaseClass() throws IOException {
         disableLogging();
+        LocalSiteServer.startShared();
+        interceptionProfile = InterceptionProfile.fromSystemProperties();
 
-        chromeOptions = new ChromeOptions();
-//        chromeOptions.addArguments("--no-sandbox");
-//        chromeOptions.addArguments("--headless");
-        chromeOptions.addArguments("--start-maximized");
-        chromeOptions.addArguments("disable-gpu");
-        chromeOptions.addArguments("--remote-allow-origins=*"); // This fixes a WebSocket error: https://stackoverflow.com/questions/75680149/unable-to-establish-websocket-connection
-//        chromeOptions.addArguments("--browserVersion=115");
-
-        // Disables the useless "ChromeDriver was started successfully" messages.
-        DriverService.Builder<ChromeDriverService, ChromeDriverService.Builder> serviceBuilder = new ChromeDriverService.Builder();
-        chromeDriverService = serviceBuilder.build();
-        chromeDriverService.sendOutputTo(NullOutputStream.NULL_OUTPUT_STREAM);
+        synchronized (SeleniumTestBase.class) {
+            if (driverPool == null) {
+                driverPool = createDriverPool();
+            }
+        }
     }
 
     @BeforeMethod
-    public void beforeSeleniumTestBaseMethod() {
-        driver = new ChromeDriver(chromeDriverService, chromeOptions);
-        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(30));
+    public void beforeSeleniumTestBaseMethod(Method method) throws IOException {
+        stepTimer = new StepTimer();
+        networkEmulator = null;
+        driverLease = driverPool.lease(Duration.ofSeconds(Long.getLong("selenium.pool.lease.timeout.seconds", 300)));
+        driver = driverLease.getDriver();
+
+        // Use explicit waits rather than an implicit wait, which makes every lookup of a missing element take the full
+        // timeout.  The script timeout has to outlast the waits that run inside the page.
+        Duration waitTimeout = Duration.ofSeconds(Long.getLong("selenium.wait.timeout.seconds", 30));
+        driver.manage().timeouts().scriptTimeout(waitTimeout.plusSeconds(5));
+        smartWait = new SmartWait(driver, waitTimeout);
+        pageDriver = new SeleniumPageDriver((ChromeDriver) driver, smartWait);
+        artifacts = ArtifactWriter.isEnabled() ? TestArtifacts.start() : null;
+
+        // Record or replay the traffic through a HAR file, depending on the 'network.mode' system property.
+        NetworkMode networkMode = NetworkMode.fromSystemProperties();
+        Path harPath = NetworkMode.getHarPath(getClass(), method.getName(), getVariant());
+
+        if (networkMode == NetworkMode.RECORD) {
+            harNetworkInterceptor = HarNetworkInterceptor.record(driver, harPath);
+        } else if (networkMode == NetworkMode.REPLAY) {
+            harNetworkInterceptor = HarNetworkInterceptor.replay(driver, harPath);
+        }
+
+        if (interceptionProfile != null) {
+            // CDP can only block by URL pattern, so the profile's resource types are blocked by file extension.
+            ChromeDriver chromeDriver = (ChromeDriver) driver;
+            chromeDriver.executeCdpCommand("Network.enable", new HashMap<>());
+            chromeDriver.executeCdpCommand("Network.setBlockedURLs",
+                    Collections.singletonMap("urls", interceptionProfile.getCdpBlockedUrls()));
+        }
+
+        if (PageMetricsWriter.isEnabled() || PerformanceBudgets.isEnabled()) {
+            PageMetricsCollector.enable((ChromeDriver) driver);
+        }
     }
 
-    @AfterMethod
-    public void afterSeleniumTestBaseMethod() {
-        if (driver != null) {
-            driver.close();
+    @AfterMethod(alwaysRun = true)
+    public void afterSeleniumTestBaseMethod(Method method, ITestResult result) throws IOException {
+        try {
+            if (interceptionProfile != null && driver != null) {
+                log.info("{} ({}): {}", method.getName(), interceptionProfile.getName(),
+                        new InterceptionStats().summarize(getTransfer()));
+            }
+
+            if ((PageMetricsWriter.isEnabled() || PerformanceBudgets.isEnabled()) && driver != null) {
+                recordPageMetrics(method, result);
+            }
+
+            if (pageDriver != null) {
+                EngineComparison.getShared().add(pageDriver.getEngine(), stepTimer.getStepsMs());
+                recordResult(method, result);
+            }
+
+            if (artifacts != null && driver != null) {
+                artifacts.finish(getArtifactName(method), !result.isSuccess(), driver);
+            }
+
+            if (harNetworkInterceptor != null) {
+                harNetworkInterceptor.close();
+            }
+        } finally {
+            // Always return the session, even if the test's setup or any of the above failed, or the next test would
+            // wait for the lease timeout.
+            artifacts = null;
+            harNetworkInterceptor = null;
+            pageDriver = null;
+
+            if (driverLease != null) {
+                driverLease.close();
+                driverLease = null;
+                driver = null;
+            }
         }
     }
 
     @AfterClass
     public void afterSeleniumTestBaseClass() {
-        if (driver != null) {
-            driver.quit();
-            driver = null;
+        SmartWait.logSlowest(10);
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void afterSeleniumTestBaseSuite() {
+        synchronized (SeleniumTestBase.class) {
+            if (driverPool != null) {
+                driverPool.close();
+                driverPool = null;
+            }
+        }
+    }
+
+    /**
+     * Runs and times a step of the test.  Step times are written with the page metrics and can have a performance
+     * budget.  See {@link PerformanceBudgets}.
+     *
+     * @param name The step name, e.g. "navigate".
+     * @param step The step.
+     */
+    @Override
+    public void step(String name, Runnable step) {
+        StepRunner.super.step(name, step);
+    }
+
+    /**
+     * Runs and times a step of the test that returns a value.
+     *
+     * @param name The step name, e.g. "navigate".
+     * @param step The step.
+     * @param <T>  The type of the result.
+     * @return The step's result.
+     */
+    @Override
+    public <T> T step(String name, Supplier<T> step) {
+        if (networkEmulator != null) {
+            networkEmulator.update();
+        }
+
+        if (artifacts != null) {
+            artifacts.getEvents().add("step", name);
         }
+
+        return stepTimer.time(name, step);
+    }
+
+    /**
+     * Emulates network conditions for the rest of the test.  A fixed profile is applied once; a time-varying schedule
+     * is updated at every {@link #step}.  ChromeDriver can't drop packets, so a profile's packet loss is ignored here.
+     *
+     * @param schedule The network profile or schedule.  See {@link NetworkProfiles}.
+     */
+    protected void emulateNetwork(NetworkSchedule schedule) {
+        networkEmulator = pageDriver.emulateNetwork(schedule);
+    }
+
+    /**
+     * @return The network profile of this instance, or null if the test class doesn't run once per profile.
+     */
+    protected NetworkSchedule getNetworkSchedule() {
+        return networkSchedule;
+    }
+
+    @Override
+    public String getVariant() {
+        return networkSchedule == null ? null : networkSchedule.getName();
+    }
+
+    /**
+     * @return The engine-neutral driver for the current test, for scenarios shared with the Playwright tests.
+     */
+    protected PageDriver getPageDriver() {
+        return pageDriver;
+    }
+
+    /**
+     * @return The name of the test's artifacts zip, including the network profile since every profile runs each test.
+     */
+    private String getArtifactName(Method method) {
+        String name = getClass().getSimpleName() + "." + method.getName();
+        return networkEmulator == null ? name : name + "-" + networkEmulator.getSchedule().getName();
+    }
+
+    private List<?> getTransfer() {
+        try {
+            return (List<?>) ((JavascriptExecutor) driver).executeScript(
+                    "return (" + InterceptionStats.TRANSFER_SCRIPT + ")();");
+        } catch (RuntimeException e) {
+            log.debug("Failed to read the transferred bytes.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Streams the test's steps and result, and feeds them to the live aggregator.  See {@link ResultStream}.
+     */
+    private void recordResult(Method method, ITestResult result) {
+        ResultStream stream = ResultStream.getShared();
+        Long bytes = stream.isEnabled() && driver != null ? InterceptionStats.getBytes(getTransfer()) : null;
+        stream.recordTest(getClass().getSimpleName() + "." + method.getName(), pageDriver.getEngine(),
+                networkEmulator == null ? null : networkEmulator.getSchedule().getName(), stepTimer.getTimings(),
+                result.getStartMillis(), result.getEndMillis() - result.getStartMillis(),
+                ResultStreamListener.getStatus(result), result.getThrowable(), bytes);
+    }
+
+    /**
+     * Writes the test's page metrics and fails the test if they're over the performance budget.
+     */
+    private void recordPageMetrics(Method method, ITestResult result) {
+        String test = getClass().getSimpleName() + "." + method.getName();
+        PageMetrics metrics;
+
+        try {
+            metrics = PageMetricsCollector.collect((ChromeDriver) driver);
+        } catch (RuntimeException e) {
+            log.warn("Failed to collect the page metrics of {}", test, e);
+            return;
+        }
+
+        metrics.setTest(test);
+        metrics.getStepsMs().putAll(stepTimer.getStepsMs());
+
+        if (networkEmulator != null) {
+            metrics.getLabels().put("network", networkEmulator.getSchedule().getName());
+        }
+
+        if (PageMetricsWriter.isEnabled()) {
+            PageMetricsWriter.getShared().write(metrics);
+        }
+
+        if (PerformanceBudgets.isEnabled() && result.isSuccess()) {
+            String failure = PerformanceBudgets.getShared().enforce(test, metrics);
+
+            if (failure != null) {
+                result.setStatus(ITestResult.FAILURE);
+                result.setThrowable(new AssertionError(failure));
+            }
+        }
+    }
+
+    /**
+     * Creates the driver pool shared by every test class in the suite.  The number of Chrome sessions can be set with
+     * the {@code selenium.pool.size} system property (defaults to 1), and {@code selenium.pool.max.uses} sets how many
+     * tests a session runs before it's replaced.  The browser flags come from the {@code launch.profile} system property
+     * (see {@link LaunchProfile}), and {@code launch.user.data.dir} keeps the sessions' profiles between runs.
+     */
+    private static ChromeDriverPool createDriverPool() {
+        LaunchProfile launchProfile = LaunchProfile.fromSystemProperties();
+        ChromeOptions chromeOptions = launchProfile.applyTo(new ChromeOptions());
+//        chromeOptions.addArguments("--no-sandbox");
+        chromeOptions.addArguments("disable-gpu");
+        chromeOptions.addArguments("--remote-allow-origins=*"); // This fixes a WebSocket error: https://stackoverflow.com/questions/75680149/unable-to-establish-websocket-connection
+//        chromeOptions.addArguments("--browserVersion=115");
+
+        // Disables the useless "ChromeDriver was started successfully" messages.
+        SharedChromeDriverService chromeDriverService = (SharedChromeDriverService) SharedChromeDriverService.builder()
+                .build();
+        chromeDriverService.sendOutputTo(NullOutputStream.NULL_OUTPUT_STREAM);
+
+        log.info("Launching Chrome with the '{}' profile.", launchProfile.getName());
+        return new ChromeDriverPool(Integer.getInteger("selenium.pool.size", 1),
+                Integer.getInteger("selenium.pool.max.uses", 50), chromeDriverService, chromeOptions,
+                UserDataDirs.fromSystemProperties());
     }
 
     /**
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardPlannerTest {
+    @Test
+    public void plan_longestFirst_balancesTotals() {
+        Map<String, Double> durations = new HashMap<>();
+        durations.put("a", 3.0);
+        durations.put("b", 7.0);
+        durations.put("c", 2.0);
+        durations.put("d", 5.0);
+        durations.put("e", 3.0);
+        durations.put("f", 4.0);
+
+        List<List<String>> shards = ShardPlanner.plan(Arrays.asList("a", "b", "c", "d", "e", "f"), durations::get,
+                test -> "", 2);
+
+        // Longest first: b, d, f, a, e, c.  Each goes to the shard with the least work so far.
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("d", "e", "f")), shards);
+        assertEquals(12.0, total(shards.get(0), durations));
+        assertEquals(12.0, total(shards.get(1), durations));
+    }
+
+    @Test
+    public void plan_equalDurations_keepsOriginalOrderForTies() {
+        List<String> tests = Arrays.asList("a", "b", "c", "d", "e");
+
+        List<List<String>> shards = ShardPlanner.plan(tests, test -> 1, test -> "", 2);
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "c", "e"), Arrays.asList("b", "d")), shards);
+        assertEquals(shards, ShardPlanner.plan(tests, test -> 1, test -> "", 2));
+    }
+
+    @Test
+    public void plan_groups_runsEachGroupTogetherInOrderOfFirstTest() {
+        Map<String, String> groups = new HashMap<>();
+        groups.put("a", "guest");
+        groups.put("b", "logged-in");
+        groups.put("c", "guest");
+        groups.put("d", "logged-in");
+        groups.put("e", "guest");
+
+        List<List<String>> shards = ShardPlanner.plan(Arrays.asList("a", "b", "c", "d", "e"), test -> 1, groups::get, 1);
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "c", "e", "b", "d")), shards);
+    }
+
+    @Test
+    public void plan_moreShardsThanTests_leavesShardsEmpty() {
+        List<List<String>> shards = ShardPlanner.plan(Arrays.asList("a", "b"), test -> 1, test -> "", 3);
+
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Collections.singletonList("b"),
+                Collections.emptyList()), shards);
+    }
+
+    @Test
+    public void plan_noShards_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ShardPlanner.plan(Collections.singletonList("a"), test -> 1, test -> "", 0));
+    }
+
+    private static double total(List<String> shard, Map<String, Double> durations) {
+        return shard.stream().mapToDouble(durations::get).sum();
+    }
+}
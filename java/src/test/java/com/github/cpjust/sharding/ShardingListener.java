@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.sharding;
+
+import com.github.cpjust.flaky.FlakyListener;
+import lombok.extern.slf4j.Slf4j;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Runs one shard of the suite, balanced by the tests' recorded durations, and records the durations for later runs.
+ * <p>
+ * Registered with TestNG through {@code META-INF/services}.  Each of N JVMs or machines runs
+ * {@code mvn test -Dshard.count=N -Dshard.index=<0..N-1>} with the same durations file ({@code shard.durations.file},
+ * defaults to {@code test-durations.properties}).  With {@code -Dshard.durations.record=true} the durations of this run
+ * are merged into the file.  See {@link ShardPlanner} and {@link ShardGroup}.
+ * <p>
+ * Durations are kept per variant of a test (see {@link FlakyListener#getTestKey}), since e.g. a test's slow-5s network
+ * profile takes far longer than its 4g one.
+ */
+@Slf4j
+public class ShardingListener implements IMethodInterceptor, IInvokedMethodListener, ISuiteListener {
+    private final int shardCount = Integer.getInteger("shard.count", 1);
+    private final int shardIndex = Integer.getInteger("shard.index", 0);
+    private final boolean recording = Boolean.getBoolean("shard.durations.record");
+    /**
+     * The shard of every test planned so far.  The JUnit Platform's TestNG engine runs TestNG twice, to discover the
+     * tests and then to run the ones this shard kept, each time with a new listener.  Planning the kept tests again
+     * would split them again, so the first plan is reused.
+     */
+    private static final Map<String, Integer> PLANNED_SHARDS = new ConcurrentHashMap<>();
+    private final TestDurations durations;
+
+    public ShardingListener() {
+        try {
+            durations = TestDurations.load(Paths.get(System.getProperty("shard.durations.file", "test-durations.properties")));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the test durations", e);
+        }
+
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("shard.index must be from 0 to " + (shardCount - 1) + " but was " + shardIndex);
+        }
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        // Quarantined tests are left out before planning, so the shards stay balanced.
+        methods = FlakyListener.filterQuarantined(methods);
+
+        if (shardCount == 1) {
+            return methods;
+        }
+
+        if (!methods.stream().allMatch(method -> PLANNED_SHARDS.containsKey(getTestKey(method)))) {
+            List<List<IMethodInstance>> shards = ShardPlanner.plan(methods,
+                    method -> durations.getDurationMs(getTestKey(method)), ShardingListener::getGroup, shardCount);
+
+            for (int i = 0; i < shards.size(); i++) {
+                for (IMethodInstance method : shards.get(i)) {
+                    PLANNED_SHARDS.put(getTestKey(method), i);
+                }
+            }
+        }
+
+        List<IMethodInstance> shard = methods.stream()
+                .filter(method -> PLANNED_SHARDS.get(getTestKey(method)) == shardIndex)
+                .collect(Collectors.toList());
+        log.info("Running shard {} of {}: {} of {} tests in '{}'.", shardIndex + 1, shardCount, shard.size(),
+                methods.size(), context.getName());
+        return shard;
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        // Durations are recorded after the test.
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (recording && method.isTestMethod()) {
+            durations.record(FlakyListener.getTestKey(testResult.getMethod(), testResult.getInstance()),
+                    testResult.getEndMillis() - testResult.getStartMillis());
+        }
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+        // Nothing to do until the suite finishes.
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!recording) {
+            return;
+        }
+
+        try {
+            durations.save();
+        } catch (IOException e) {
+            log.warn("Failed to save the test durations", e);
+        }
+    }
+
+    private static String getTestKey(IMethodInstance method) {
+        return FlakyListener.getTestKey(method.getMethod(), method.getInstance());
+    }
+
+    private static String getGroup(IMethodInstance method) {
+        Class<?> testClass = method.getMethod().getRealClass();
+        ShardGroup group = testClass.getAnnotation(ShardGroup.class);
+        return group != null ? group.value() : testClass.getName();
+    }
+}
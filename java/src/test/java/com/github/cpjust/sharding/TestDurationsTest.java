@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2024 Chris Just
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cpjust.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestDurationsTest {
+    @Test
+    public void save_knownTest_movesAverageTowardsThisRun() throws IOException {
+        Path file = Files.createTempDirectory("durations").resolve("durations.properties");
+        Files.write(file, Arrays.asList("Test.a = 1000", "Test.b = 400"));
+        TestDurations durations = TestDurations.load(file);
+
+        // Averaged within the run, then smoothed into the saved value: 1000 + 0.3 * (2000 - 1000).
+        durations.record("Test.a", 1500);
+        durations.record("Test.a", 2500);
+        durations.record("Test.c", 700);
+        durations.save();
+
+        TestDurations saved = TestDurations.load(file);
+        assertEquals(1300.0, saved.getDurationMs("Test.a"));
+        assertEquals(400.0, saved.getDurationMs("Test.b"));
+        assertEquals(700.0, saved.getDurationMs("Test.c"));
+    }
+
+    @Test
+    public void save_variantsOfOneTest_keepsEachVariantsDuration() throws IOException {
+        Path file = Files.createTempDirectory("durations").resolve("durations.properties");
+        TestDurations durations = TestDurations.load(file);
+
+        durations.record("Test.a [slow-5s]", 9000);
+        durations.record("Test.a [4g]", 300);
+        durations.save();
+
+        TestDurations saved = TestDurations.load(file);
+        assertEquals(9000.0, saved.getDurationMs("Test.a [slow-5s]"));
+        assertEquals(300.0, saved.getDurationMs("Test.a [4g]"));
+    }
+
+    @Test
+    public void save_twoShards_keepsBothShardsTests() throws IOException {
+        Path file = Files.createTempDirectory("durations").resolve("durations.properties");
+        TestDurations shard0 = TestDurations.load(file);
+        TestDurations shard1 = TestDurations.load(file);
+
+        shard0.record("Test.a", 100);
+        shard1.record("Test.b", 200);
+        shard0.save();
+        shard1.save();
+
+        TestDurations merged = TestDurations.load(file);
+        assertEquals(100.0, merged.getDurationMs("Test.a"));
+        assertEquals(200.0, merged.getDurationMs("Test.b"));
+    }
+
+    @Test
+    public void getDurationMs_unknownTest_returnsMedian() throws IOException {
+        Path file = Files.createTempDirectory("durations").resolve("durations.properties");
+        Files.write(file, Arrays.asList("Test.a = 100", "Test.b = 300", "Test.c = 9000"));
+
+        assertEquals(300.0, TestDurations.load(file).getDurationMs("Test.new"));
+    }
+}